@@ -0,0 +1,304 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Limits how many requests {@link EurekaClient} has in flight to its
+ * service, adapting the limit to the latency that the service shows. The
+ * limit follows the gradient between the lowest response time recently
+ * seen, which approximates the service's unloaded latency, and the latest
+ * response time: while they match, the limit grows by about its square root,
+ * and as responses slow down under load, it shrinks in proportion. When a
+ * request fails without a response or with <code>429</code> or
+ * <code>503</code>, the limit is cut multiplicatively.
+ *
+ * Requests over the limit wait in a bounded queue for a bounded time and
+ * are then rejected with a {@link ConcurrencyLimitException}. The current
+ * limit, in-flight count and queue depth can be read at any time for
+ * monitoring.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    public static final int DEFAULT_MIN_LIMIT = 2;
+
+    public static final int DEFAULT_MAX_LIMIT = 200;
+
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+
+    public static final long DEFAULT_MAX_QUEUE_TIME_MILLIS = 1000;
+
+    /**
+     * The weight of each new sample in the smoothed limit.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * The factor by which the limit is cut when a request is dropped.
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * The lowest gradient applied from a single sample.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * How many samples the lowest response time is kept before it is
+     * measured afresh, so that the limiter follows lasting changes in the
+     * service's latency.
+     */
+    private static final int MIN_RESPONSE_TIME_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long maxQueueTimeNanos;
+    private final ReentrantLock lock;
+    private final Condition available;
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long minResponseTimeNanos;
+    private int samples;
+    private final LongAdder rejections;
+
+    /**
+     * Creates a limiter with the default settings.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_MAX_QUEUE_SIZE,
+                DEFAULT_MAX_QUEUE_TIME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param initialLimit the limit to start with. Must be between the
+     * minimum and maximum limits.
+     * @param minLimit the lowest that the limit falls to. Must be positive.
+     * @param maxLimit the highest that the limit grows to. Cannot be less
+     * than the minimum limit.
+     * @param maxQueueSize how many requests may wait for the limit at once.
+     * Cannot be negative.
+     * @param maxQueueTime how long a request may wait for the limit. Cannot
+     * be negative.
+     * @param unit the maximum queue time's unit. Cannot be <code>null</code>.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+            int maxQueueSize, long maxQueueTime, TimeUnit unit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("minLimit must be positive");
+        }
+        if (maxLimit < minLimit) {
+            throw new IllegalArgumentException("maxLimit cannot be less than minLimit");
+        }
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize cannot be negative");
+        }
+        if (maxQueueTime < 0) {
+            throw new IllegalArgumentException("maxQueueTime cannot be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueTimeNanos = unit.toNanos(maxQueueTime);
+        this.lock = new ReentrantLock();
+        this.available = this.lock.newCondition();
+        this.limit = initialLimit;
+        this.minResponseTimeNanos = Long.MAX_VALUE;
+        this.rejections = new LongAdder();
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public long getMaxQueueTime(TimeUnit unit) {
+        return unit.convert(maxQueueTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets how many requests may currently be in flight.
+     *
+     * @return the limit.
+     */
+    public int getLimit() {
+        this.lock.lock();
+        try {
+            return (int) this.limit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets how many requests are in flight.
+     *
+     * @return the number of requests.
+     */
+    public int getInFlight() {
+        this.lock.lock();
+        try {
+            return this.inFlight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets how many requests are waiting for the limit.
+     *
+     * @return the number of requests.
+     */
+    public int getQueueDepth() {
+        this.lock.lock();
+        try {
+            return this.queued;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets how many requests have been rejected because the queue was full
+     * or they waited too long.
+     *
+     * @return the number of requests.
+     */
+    public long getRejectedCount() {
+        return this.rejections.sum();
+    }
+
+    /**
+     * Waits until a request may be sent. Every successful call must be
+     * followed by a call to {@link #release(long, boolean)}.
+     *
+     * @throws ConcurrencyLimitException if the queue is full or the request
+     * waited for too long.
+     */
+    void acquire() throws ClientException {
+        this.lock.lock();
+        try {
+            if (this.inFlight < (int) this.limit) {
+                this.inFlight++;
+                return;
+            }
+            if (this.queued >= this.maxQueueSize) {
+                this.rejections.increment();
+                throw new ConcurrencyLimitException((int) this.limit, this.queued);
+            }
+            this.queued++;
+            try {
+                long remaining = this.maxQueueTimeNanos;
+                while (this.inFlight >= (int) this.limit) {
+                    if (remaining <= 0) {
+                        this.rejections.increment();
+                        throw new ConcurrencyLimitException((int) this.limit, this.queued);
+                    }
+                    remaining = this.available.awaitNanos(remaining);
+                }
+            } catch (InterruptedException ex) {
+                throw ClientExceptions.interrupted(ex);
+            } finally {
+                this.queued--;
+            }
+            this.inFlight++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of a request that {@link #acquire()} let through
+     * and adjusts the limit.
+     *
+     * @param responseNanos the time until the response arrived or the
+     * request failed, in nanoseconds.
+     * @param dropped whether the request failed in a way that signals
+     * overload.
+     */
+    void release(long responseNanos, boolean dropped) {
+        this.lock.lock();
+        try {
+            int previousLimit = (int) this.limit;
+            boolean saturated = this.inFlight >= this.limit / 2;
+            this.inFlight--;
+            if (dropped) {
+                this.limit = Math.max(this.minLimit, this.limit * BACKOFF_RATIO);
+            } else {
+                if (++this.samples >= MIN_RESPONSE_TIME_SAMPLES) {
+                    this.samples = 0;
+                    this.minResponseTimeNanos = Long.MAX_VALUE;
+                }
+                this.minResponseTimeNanos = Math.min(this.minResponseTimeNanos, Math.max(1L, responseNanos));
+                double gradient = Math.max(MIN_GRADIENT,
+                        Math.min(1.0, (double) this.minResponseTimeNanos / Math.max(1L, responseNanos)));
+                double newLimit = this.limit * gradient;
+                if (saturated) {
+                    newLimit += Math.sqrt(this.limit);
+                }
+                newLimit = this.limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+                this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+            }
+            int permits = (int) this.limit - this.inFlight;
+            if (permits > 1 || (int) this.limit > previousLimit) {
+                this.available.signalAll();
+            } else if (permits > 0) {
+                this.available.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        this.lock.lock();
+        try {
+            return "AdaptiveConcurrencyLimiter{" + "limit=" + (int) limit
+                    + ", inFlight=" + inFlight + ", queued=" + queued
+                    + ", rejections=" + rejections.sum() + '}';
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
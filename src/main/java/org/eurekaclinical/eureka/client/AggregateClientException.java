@@ -0,0 +1,113 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Thrown when a call that makes several requests on the caller's behalf has
+ * one or more of those requests fail. The individual failures are available
+ * by the key (phenotype key, file name, etc.) of the request that failed,
+ * and they are also attached as suppressed exceptions.
+ */
+public class AggregateClientException extends ClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LinkedHashMap<String, ClientException> failures;
+
+    /**
+     * Creates an exception from the given failures. Its response status is
+     * the status shared by all of the failures, or the status of the first
+     * failure if they differ.
+     *
+     * @param message a description of the overall call.
+     * @param failures the failed requests' keys and exceptions, in request
+     * order. Cannot be <code>null</code> or empty.
+     */
+    public AggregateClientException(String message, Map<String, ? extends ClientException> failures) {
+        super(statusOf(failures), message + ": " + describe(failures));
+        this.failures = new LinkedHashMap<>(failures);
+        for (ClientException failure : this.failures.values()) {
+            if (failure != this && !containsSuppressed(failure)) {
+                addSuppressed(failure);
+            }
+        }
+    }
+
+    /**
+     * Gets the failed requests.
+     *
+     * @return an unmodifiable map from request key to failure, in request
+     * order.
+     */
+    public Map<String, ClientException> getFailures() {
+        return Collections.unmodifiableMap(this.failures);
+    }
+
+    private boolean containsSuppressed(Throwable throwable) {
+        for (Throwable suppressed : getSuppressed()) {
+            if (suppressed == throwable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ClientResponse.Status statusOf(Map<String, ? extends ClientException> failures) {
+        if (failures == null || failures.isEmpty()) {
+            throw new IllegalArgumentException("failures cannot be null or empty");
+        }
+        ClientResponse.Status result = null;
+        for (ClientException failure : failures.values()) {
+            ClientResponse.Status status = failure.getResponseStatus();
+            if (result == null) {
+                result = status;
+            } else if (result != status) {
+                return failures.values().iterator().next().getResponseStatus();
+            }
+        }
+        return result;
+    }
+
+    private static String describe(Map<String, ? extends ClientException> failures) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(failures.size()).append(failures.size() == 1 ? " failure " : " failures ");
+        builder.append('[');
+        int i = 0;
+        for (Map.Entry<String, ? extends ClientException> me : failures.entrySet()) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (i == 10) {
+                builder.append("...");
+                break;
+            }
+            builder.append(me.getKey()).append(" (").append(me.getValue().getResponseStatus()).append(')');
+            i++;
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the combined rate at which streams can be read. All streams
+ * wrapped by the same limiter share its budget of bytes per second, with
+ * bursts of up to one second's worth of bytes. This class is thread-safe.
+ */
+final class BandwidthLimiter {
+
+    private double bytesPerNano;
+    private double capacity;
+    private double available;
+    private long refilledAt;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param bytesPerSecond the combined maximum rate. Must be positive.
+     */
+    BandwidthLimiter(long bytesPerSecond) {
+        if (bytesPerSecond < 1) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.capacity = bytesPerSecond;
+        this.available = bytesPerSecond;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Changes the combined maximum rate. Streams that are being read switch
+     * to the new rate immediately.
+     *
+     * @param bytesPerSecond the combined maximum rate. Must be positive.
+     */
+    synchronized void setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond < 1) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        long now = System.nanoTime();
+        this.available = Math.min(this.capacity,
+                this.available + (now - this.refilledAt) * this.bytesPerNano);
+        this.refilledAt = now;
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.capacity = bytesPerSecond;
+        this.available = Math.min(this.available, this.capacity);
+    }
+
+    /**
+     * Wraps a stream so that reading from it draws on this limiter's budget.
+     *
+     * @param in a stream.
+     * @return the wrapped stream.
+     */
+    InputStream limit(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    acquire(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Takes bytes from the budget, waiting until the budget allows them.
+     *
+     * @param bytes the number of bytes.
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    void acquire(int bytes) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            this.available = Math.min(this.capacity,
+                    this.available + (now - this.refilledAt) * this.bytesPerNano);
+            this.refilledAt = now;
+            this.available -= bytes;
+            waitNanos = this.available >= 0 ? 0 : (long) Math.ceil(-this.available / this.bytesPerNano);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException iioe = new InterruptedIOException("Interrupted while throttling");
+                iioe.initCause(ex);
+                throw iioe;
+            }
+        }
+    }
+}
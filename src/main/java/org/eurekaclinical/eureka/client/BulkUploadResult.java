@@ -0,0 +1,86 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of uploading several files at once: the statistics of each
+ * file that was uploaded, the exception for each file that was not, and
+ * statistics for the upload as a whole.
+ */
+public class BulkUploadResult {
+
+    private final Map<String, TransferStatistics> uploaded;
+    private final Map<String, Exception> failed;
+    private final TransferStatistics total;
+
+    BulkUploadResult(Map<String, TransferStatistics> uploaded,
+            Map<String, Exception> failed, long elapsedNanos) {
+        this.uploaded = Collections.unmodifiableMap(new LinkedHashMap<>(uploaded));
+        this.failed = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+        long bytes = 0;
+        for (TransferStatistics statistics : uploaded.values()) {
+            bytes += statistics.getBytes();
+        }
+        this.total = new TransferStatistics(bytes, elapsedNanos);
+    }
+
+    /**
+     * Gets the files that were uploaded.
+     *
+     * @return the statistics of each uploaded file by file type id.
+     */
+    public Map<String, TransferStatistics> getUploaded() {
+        return uploaded;
+    }
+
+    /**
+     * Gets the files that could not be uploaded.
+     *
+     * @return the {@link org.eurekaclinical.common.comm.clients.ClientException}
+     * or {@link java.io.IOException} for each failed file by file type id.
+     */
+    public Map<String, Exception> getFailed() {
+        return failed;
+    }
+
+    public boolean isSuccessful() {
+        return this.failed.isEmpty();
+    }
+
+    /**
+     * Gets the combined size of the uploaded files and the throughput of the
+     * whole upload, measured from start to finish.
+     *
+     * @return the statistics.
+     */
+    public TransferStatistics getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUploadResult{" + "uploaded=" + uploaded.keySet()
+                + ", failed=" + failed.keySet() + ", total=" + total + '}';
+    }
+}
@@ -0,0 +1,159 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * A fixed limit on how many requests of one {@link RouteClass} a client has
+ * open at once, so that one class of traffic cannot take all of the
+ * client's capacity from another. A request is counted from when it is sent
+ * until its response is closed, so a download holds its place while its
+ * body is read. Requests over the limit wait for up to a maximum time and
+ * are then rejected with a {@link BulkheadFullException}.
+ */
+public final class Bulkhead {
+
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final LongAdder rejections;
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param maxConcurrent how many requests may be open at once. Must be
+     * positive.
+     * @param maxWait how long a request may wait for room. Cannot be
+     * negative.
+     * @param unit the maximum wait's unit. Cannot be <code>null</code>.
+     */
+    public Bulkhead(int maxConcurrent, long maxWait, TimeUnit unit) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait cannot be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.rejections = new LongAdder();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets how many requests are open.
+     *
+     * @return the number of requests.
+     */
+    public int getInFlight() {
+        return this.maxConcurrent - this.permits.availablePermits();
+    }
+
+    /**
+     * Gets about how many requests are waiting for room.
+     *
+     * @return the number of requests.
+     */
+    public int getQueueDepth() {
+        return this.permits.getQueueLength();
+    }
+
+    /**
+     * Gets how many requests have been rejected because they waited too
+     * long.
+     *
+     * @return the number of requests.
+     */
+    public long getRejectedCount() {
+        return this.rejections.sum();
+    }
+
+    /**
+     * Waits until a request may be sent. Every successful call must be
+     * followed by a call to {@link #release()}, or by closing a response
+     * returned by {@link #releaseOnClose(TransportResponse)}.
+     *
+     * @param routeClass the class of the request, for the exception message.
+     * @throws BulkheadFullException if the request waited too long.
+     */
+    void acquire(RouteClass routeClass) throws ClientException {
+        try {
+            if (!this.permits.tryAcquire(this.maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                this.rejections.increment();
+                throw new BulkheadFullException(routeClass, this.maxConcurrent);
+            }
+        } catch (InterruptedException ex) {
+            throw ClientExceptions.interrupted(ex);
+        }
+    }
+
+    void release() {
+        this.permits.release();
+    }
+
+    /**
+     * Returns a response that releases its request's place when it is
+     * closed.
+     *
+     * @param response a response to a request that holds a place.
+     * @return the wrapped response.
+     */
+    TransportResponse releaseOnClose(TransportResponse response) {
+        AtomicBoolean released = new AtomicBoolean();
+        return new TransportResponse(response.getStatus(), response.getHeaders(),
+                new FilterInputStream(response.getEntityInputStream()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        release();
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{" + "maxConcurrent=" + maxConcurrent
+                + ", inFlight=" + getInFlight() + ", queueDepth=" + getQueueDepth()
+                + ", rejections=" + getRejectedCount() + '}';
+    }
+}
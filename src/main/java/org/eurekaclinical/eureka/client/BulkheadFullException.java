@@ -0,0 +1,52 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.util.Locale;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Thrown instead of sending a request when the {@link Bulkhead} of its
+ * {@link RouteClass} stays full for longer than the bulkhead's maximum
+ * wait. Its response status is <code>503 Service Unavailable</code>.
+ */
+public class BulkheadFullException extends ClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RouteClass routeClass;
+
+    /**
+     * Creates an exception.
+     *
+     * @param routeClass the class of the rejected request.
+     * @param maxConcurrent the bulkhead's limit.
+     */
+    public BulkheadFullException(RouteClass routeClass, int maxConcurrent) {
+        super(ClientResponse.Status.SERVICE_UNAVAILABLE,
+                "Too many " + routeClass.name().toLowerCase(Locale.ROOT) + " requests open (limit " + maxConcurrent + ")");
+        this.routeClass = routeClass;
+    }
+
+    public RouteClass getRouteClass() {
+        return routeClass;
+    }
+}
@@ -0,0 +1,254 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The circuit breaker of one endpoint, that is, one HTTP method and route
+ * template, as described in {@link CircuitBreakerPolicy}. Its state and
+ * counters can be read at any time for monitoring, and state changes are
+ * reported to the client's {@link ClientMetricsListener}.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * A breaker's state.
+     */
+    public enum State {
+        /**
+         * Requests are sent, and consecutive failures are counted.
+         */
+        CLOSED,
+        /**
+         * Requests fail immediately.
+         */
+        OPEN,
+        /**
+         * A single trial request is sent, and the others fail immediately.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Permission to send one request, tagged with the breaker state that
+     * granted it, so that a request that finishes after the state changed
+     * does not affect the new state.
+     */
+    static final class Permit {
+
+        private final long generation;
+        private final boolean trial;
+
+        private Permit(long generation, boolean trial) {
+            this.generation = generation;
+            this.trial = trial;
+        }
+    }
+
+    private final String method;
+    private final String route;
+    private final CircuitBreakerPolicy policy;
+    private final Supplier<ClientMetricsListener> listener;
+    private State state;
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long openCount;
+    private long rejectedCount;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param method the HTTP method.
+     * @param route the route template.
+     * @param policy when to open.
+     * @param listener supplies the listener to report state changes to,
+     * which may be <code>null</code>.
+     */
+    CircuitBreaker(String method, String route, CircuitBreakerPolicy policy,
+            Supplier<ClientMetricsListener> listener) {
+        this.method = method;
+        this.route = route;
+        this.policy = policy;
+        this.listener = listener;
+        this.state = State.CLOSED;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public CircuitBreakerPolicy getPolicy() {
+        return policy;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Gets how many times the breaker has opened.
+     *
+     * @return the number of times.
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Gets how many requests failed immediately because the breaker was
+     * open.
+     *
+     * @return the number of requests.
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Asks to send a request. Every request that is allowed must be followed
+     * by a call to {@link #record(Permit, boolean)} or
+     * {@link #cancel(Permit)} with the returned permit.
+     *
+     * @return a permit if the request may be sent, or <code>null</code> if
+     * not.
+     */
+    Permit tryAcquire() {
+        Permit permit;
+        synchronized (this) {
+            switch (this.state) {
+                case CLOSED:
+                    return new Permit(this.generation, false);
+                case OPEN:
+                    if (System.nanoTime() - this.openedAt < this.policy.getOpenDuration(TimeUnit.NANOSECONDS)) {
+                        this.rejectedCount++;
+                        return null;
+                    }
+                    this.state = State.HALF_OPEN;
+                    this.generation++;
+                    this.trialInFlight = true;
+                    permit = new Permit(this.generation, true);
+                    break;
+                default:
+                    if (this.trialInFlight) {
+                        this.rejectedCount++;
+                        return null;
+                    }
+                    this.trialInFlight = true;
+                    return new Permit(this.generation, true);
+            }
+        }
+        stateChanged(State.HALF_OPEN);
+        return permit;
+    }
+
+    /**
+     * Records the outcome of a request that {@link #tryAcquire()} allowed.
+     * The outcome is ignored if the breaker has changed state since the
+     * permit was granted.
+     *
+     * @param permit the request's permit.
+     * @param success whether the request got a response without a
+     * <code>5xx</code> status.
+     */
+    void record(Permit permit, boolean success) {
+        State changedTo = null;
+        synchronized (this) {
+            if (permit.generation != this.generation) {
+                return;
+            }
+            if (success) {
+                this.consecutiveFailures = 0;
+                if (this.state == State.HALF_OPEN) {
+                    this.state = State.CLOSED;
+                    this.generation++;
+                    this.trialInFlight = false;
+                    changedTo = State.CLOSED;
+                }
+            } else {
+                this.consecutiveFailures++;
+                if (this.state == State.HALF_OPEN
+                        || (this.state == State.CLOSED
+                        && this.consecutiveFailures >= this.policy.getFailureThreshold())) {
+                    this.state = State.OPEN;
+                    this.generation++;
+                    this.trialInFlight = false;
+                    this.openedAt = System.nanoTime();
+                    this.openCount++;
+                    changedTo = State.OPEN;
+                }
+            }
+        }
+        if (changedTo != null) {
+            stateChanged(changedTo);
+        }
+    }
+
+    /**
+     * Notes that a request that {@link #tryAcquire()} allowed was not sent,
+     * so that it counts as neither a success nor a failure.
+     *
+     * @param permit the request's permit.
+     */
+    synchronized void cancel(Permit permit) {
+        if (permit.trial && permit.generation == this.generation) {
+            this.trialInFlight = false;
+        }
+    }
+
+    private void stateChanged(State newState) {
+        if (newState == State.OPEN) {
+            LOGGER.warn("Circuit breaker opened for {} {}", this.method, this.route);
+        } else {
+            LOGGER.info("Circuit breaker {} for {} {}", newState == State.CLOSED ? "closed" : "half-open",
+                    this.method, this.route);
+        }
+        ClientMetricsListener l = this.listener.get();
+        if (l != null) {
+            try {
+                l.circuitBreakerStateChanged(this.method, this.route, newState);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Metrics listener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + "method=" + method + ", route=" + route
+                + ", state=" + state + ", consecutiveFailures=" + consecutiveFailures
+                + ", openCount=" + openCount + ", rejectedCount=" + rejectedCount + '}';
+    }
+}
@@ -0,0 +1,89 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When {@link EurekaClient} stops sending requests to an endpoint that is
+ * failing. Each endpoint, that is, each HTTP method and route template, has
+ * its own {@link CircuitBreaker}. After the configured number of consecutive
+ * failures, which are requests that get no response or a <code>5xx</code>
+ * status, the breaker opens, and requests to the endpoint fail immediately
+ * with a {@link CircuitOpenException} instead of adding load to a service
+ * that is struggling. Once the open duration has passed, the breaker lets
+ * one trial request through; it closes if the trial succeeds and opens again
+ * if it fails.
+ */
+public final class CircuitBreakerPolicy {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    public static final long DEFAULT_OPEN_DURATION_SECONDS = 30;
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    /**
+     * Creates a policy that opens a breaker after
+     * {@link #DEFAULT_FAILURE_THRESHOLD} consecutive failures for
+     * {@link #DEFAULT_OPEN_DURATION_SECONDS} seconds.
+     */
+    public CircuitBreakerPolicy() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param failureThreshold how many consecutive failures open a breaker.
+     * Must be positive.
+     * @param openDuration how long a breaker stays open before letting a
+     * trial request through. Must be positive.
+     * @param unit the open duration's unit. Cannot be <code>null</code>.
+     */
+    public CircuitBreakerPolicy(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        if (openDuration < 1) {
+            throw new IllegalArgumentException("openDuration must be positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDuration(TimeUnit unit) {
+        return unit.convert(openDurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerPolicy{" + "failureThreshold=" + failureThreshold
+                + ", openDurationNanos=" + openDurationNanos + '}';
+    }
+}
@@ -0,0 +1,56 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Thrown instead of sending a request when the {@link CircuitBreaker} of its
+ * endpoint is open. Its response status is
+ * <code>503 Service Unavailable</code>.
+ */
+public class CircuitOpenException extends ClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String method;
+    private final String route;
+
+    /**
+     * Creates an exception.
+     *
+     * @param method the request's HTTP method.
+     * @param route the route template of the request's path.
+     */
+    public CircuitOpenException(String method, String route) {
+        super(ClientResponse.Status.SERVICE_UNAVAILABLE, "Circuit breaker is open for " + method + " " + route);
+        this.method = method;
+        this.route = route;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+}
@@ -0,0 +1,178 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Converts failures that happen outside of the request methods' own error
+ * handling, such as on a worker thread, into {@link ClientException}s.
+ */
+final class ClientExceptions {
+
+    /**
+     * The maximum number of bytes of an error response's body to include in
+     * an exception message.
+     */
+    private static final int MAX_ERROR_BODY = 8192;
+
+    private ClientExceptions() {
+    }
+
+    /**
+     * Throws an exception if a response does not have one of the given
+     * statuses. The response is left open if its status is expected and
+     * closed otherwise.
+     *
+     * @param response a response. Cannot be <code>null</code>.
+     * @param expected the expected statuses.
+     * @throws ClientException with the response's status and the beginning
+     * of its body as the message if the status is not expected.
+     */
+    static void ensureStatus(TransportResponse response, ClientResponse.Status... expected) throws ClientException {
+        int status = response.getStatus();
+        for (ClientResponse.Status s : expected) {
+            if (s.getStatusCode() == status) {
+                return;
+            }
+        }
+        throw unexpectedStatus(response);
+    }
+
+    /**
+     * Throws an exception if a response's status is not in the 2xx range.
+     * The response is left open if its status is successful and closed
+     * otherwise.
+     *
+     * @param response a response. Cannot be <code>null</code>.
+     * @throws ClientException with the response's status and the beginning
+     * of its body as the message if the status is not successful.
+     */
+    static void ensureSuccessful(TransportResponse response) throws ClientException {
+        int status = response.getStatus();
+        if (status < 200 || status >= 300) {
+            throw unexpectedStatus(response);
+        }
+    }
+
+    private static ClientException unexpectedStatus(TransportResponse response) {
+        int status = response.getStatus();
+        ClientResponse.Status responseStatus = ClientResponse.Status.fromStatusCode(status);
+        String message = readErrorBody(response);
+        return new ClientException(
+                responseStatus != null ? responseStatus : ClientResponse.Status.INTERNAL_SERVER_ERROR,
+                message != null && !message.isEmpty() ? message : "Unexpected response status " + status);
+    }
+
+    /**
+     * Returns the given throwable as a {@link ClientException}, wrapping it
+     * if necessary.
+     *
+     * @param throwable a failure. Cannot be <code>null</code>.
+     * @return the throwable itself if it is a {@link ClientException},
+     * otherwise a new {@link ClientException} with an internal server error
+     * status whose cause is the throwable.
+     */
+    static ClientException toClientException(Throwable throwable) {
+        if (throwable instanceof ClientException) {
+            return (ClientException) throwable;
+        }
+        ClientException result = new ClientException(
+                ClientResponse.Status.INTERNAL_SERVER_ERROR,
+                throwable.getMessage() != null ? throwable.getMessage() : throwable.getClass().getName());
+        result.initCause(throwable);
+        return result;
+    }
+
+    /**
+     * Creates the exception that is thrown when a thread is interrupted while
+     * waiting for a request to finish. The thread's interrupt status is
+     * restored.
+     *
+     * @param ex the interruption.
+     * @return a new {@link ClientException}.
+     */
+    static ClientException interrupted(InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        ClientException result = new ClientException(
+                ClientResponse.Status.INTERNAL_SERVER_ERROR,
+                "Interrupted while waiting for a response");
+        result.initCause(ex);
+        return result;
+    }
+
+    /**
+     * Waits for a future and returns its result, rethrowing the exception
+     * with which it failed.
+     *
+     * @param <T> the result type.
+     * @param future the future. Cannot be <code>null</code>.
+     * @return the future's result.
+     * @throws ClientException if the future failed with a
+     * {@link ClientException} or checked exception, was cancelled, or the
+     * calling thread was interrupted while waiting. Runtime exceptions and
+     * errors with which the future failed are rethrown as is.
+     */
+    static <T> T getResult(Future<T> future) throws ClientException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            throw interrupted(ex);
+        } catch (CancellationException ex) {
+            throw toClientException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw toClientException(cause);
+            }
+        }
+    }
+
+    private static String readErrorBody(TransportResponse response) {
+        try (InputStream in = response.getEntityInputStream()) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while (out.size() < MAX_ERROR_BODY && (n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, Math.min(n, MAX_ERROR_BODY - out.size()));
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            return null;
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the executor that the client uses when the caller does not supply
+ * one, the scheduler that it uses for timers, and the pool on which it
+ * compresses request bodies. Their threads are daemon threads, so an
+ * application that never closes its clients can still exit.
+ */
+final class ClientExecutors {
+
+    /**
+     * The number of threads in the compression pool.
+     */
+    static final int COMPRESSION_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static class LazyHolder {
+
+        private static final ExecutorService DEFAULT_EXECUTOR
+                = Executors.newCachedThreadPool(new ClientThreadFactory("eureka-client"));
+    }
+
+    private static class SchedulerHolder {
+
+        private static final ScheduledExecutorService SCHEDULER
+                = Executors.newSingleThreadScheduledExecutor(new ClientThreadFactory("eureka-client-timer"));
+    }
+
+    private static class CompressionHolder {
+
+        private static final ExecutorService COMPRESSION_EXECUTOR
+                = Executors.newFixedThreadPool(COMPRESSION_THREADS, new ClientThreadFactory("eureka-client-compression"));
+    }
+
+    private ClientExecutors() {
+    }
+
+    /**
+     * Gets the shared default executor, creating it on first use.
+     *
+     * @return the default executor. Never <code>null</code>.
+     */
+    static ExecutorService defaultExecutor() {
+        return LazyHolder.DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Gets the shared scheduler, creating it on first use. It has a single
+     * thread, so scheduled tasks must be short; tasks that make requests
+     * should hand them off to an executor.
+     *
+     * @return the scheduler. Never <code>null</code>.
+     */
+    static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.SCHEDULER;
+    }
+
+    /**
+     * Gets the shared pool for compression, creating it on first use. It has
+     * {@link #COMPRESSION_THREADS} threads, and its tasks are CPU-bound and
+     * never block on requests, so callers that block on it cannot starve it.
+     *
+     * @return the compression pool. Never <code>null</code>.
+     */
+    static ExecutorService compressionExecutor() {
+        return CompressionHolder.COMPRESSION_EXECUTOR;
+    }
+
+    /**
+     * Creates daemon threads with the given name prefix.
+     */
+    static final class ClientThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count;
+
+        ClientThreadFactory(String prefix) {
+            this.prefix = prefix;
+            this.count = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, this.prefix + "-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
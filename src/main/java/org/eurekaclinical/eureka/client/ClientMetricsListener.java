@@ -0,0 +1,67 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Notified of each request that {@link EurekaClient} makes. Requests are
+ * identified by their route template, such as
+ * <code>/api/protected/jobs/{id}</code>, rather than by URL, so that the
+ * number of distinct routes stays small. Implementations must be
+ * thread-safe and fast, since they are called on the requesting thread.
+ * {@link ClientMetricsRecorder} is an implementation that keeps statistics
+ * per route.
+ */
+public interface ClientMetricsListener {
+
+    /**
+     * Called when a request completes, that is, when its response has been
+     * closed or the request has failed. The client reads every response
+     * body itself, including those that it deserializes, so bytes are
+     * counted for every request.
+     *
+     * @param method the HTTP method.
+     * @param route the route template of the request's path.
+     * @param status the response's HTTP status code, or 0 if no response
+     * was received.
+     * @param responseNanos the time until the response's headers arrived, or
+     * until the request failed, in nanoseconds.
+     * @param durationNanos the time until the response was closed, including
+     * reading its body, in nanoseconds.
+     * @param requestBytes the number of request body bytes sent. For
+     * {@link EurekaClient#upload(String, String, String, java.io.InputStream)},
+     * whose multipart body the inherited Jersey client assembles, this is the
+     * number of bytes of the uploaded file.
+     * @param responseBytes the number of response body bytes read, before
+     * any decompression.
+     */
+    void requestCompleted(String method, String route, int status,
+            long responseNanos, long durationNanos, long requestBytes, long responseBytes);
+
+    /**
+     * Called when an endpoint's {@link CircuitBreaker} changes state. Does
+     * nothing by default.
+     *
+     * @param method the HTTP method.
+     * @param route the route template.
+     * @param state the breaker's new state.
+     */
+    default void circuitBreakerStateChanged(String method, String route, CircuitBreaker.State state) {
+    }
+}
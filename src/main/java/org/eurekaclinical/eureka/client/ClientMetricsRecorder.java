@@ -0,0 +1,88 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps request counts, status codes, byte counts and latency histograms per
+ * route and HTTP method. Recording takes no locks once a route has been
+ * seen. Every {@link EurekaClient} has one, available from
+ * {@link EurekaClient#getMetrics()}.
+ */
+public class ClientMetricsRecorder implements ClientMetricsListener {
+
+    private final ConcurrentMap<String, RouteMetrics> routes;
+
+    public ClientMetricsRecorder() {
+        this.routes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void requestCompleted(String method, String route, int status,
+            long responseNanos, long durationNanos, long requestBytes, long responseBytes) {
+        routeMetrics(method, route).record(status, responseNanos, durationNanos, requestBytes, responseBytes);
+    }
+
+    /**
+     * Gets the statistics for a route and method.
+     *
+     * @param method the HTTP method.
+     * @param route the route template.
+     * @return the statistics, or <code>null</code> if no such request has
+     * been recorded.
+     */
+    public RouteMetrics getRoute(String method, String route) {
+        return this.routes.get(key(method, route));
+    }
+
+    /**
+     * Gets the statistics for every route and method recorded so far.
+     *
+     * @return a snapshot of the routes.
+     */
+    public Collection<RouteMetrics> getRoutes() {
+        return Collections.unmodifiableList(new ArrayList<>(this.routes.values()));
+    }
+
+    /**
+     * Discards all statistics.
+     */
+    public void reset() {
+        this.routes.clear();
+    }
+
+    RouteMetrics routeMetrics(String method, String route) {
+        String key = key(method, route);
+        RouteMetrics result = this.routes.get(key);
+        if (result == null) {
+            result = this.routes.computeIfAbsent(key, k -> new RouteMetrics(method, route));
+        }
+        return result;
+    }
+
+    private static String key(String method, String route) {
+        return method + ' ' + route;
+    }
+}
@@ -0,0 +1,58 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Thrown instead of sending a request when the client's
+ * {@link AdaptiveConcurrencyLimiter} has no room for it. Its response status
+ * is <code>503 Service Unavailable</code>.
+ */
+public class ConcurrencyLimitException extends ClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int limit;
+    private final int queueDepth;
+
+    /**
+     * Creates an exception.
+     *
+     * @param limit the limit when the request was rejected.
+     * @param queueDepth how many requests were waiting when the request was
+     * rejected.
+     */
+    public ConcurrencyLimitException(int limit, int queueDepth) {
+        super(ClientResponse.Status.SERVICE_UNAVAILABLE,
+                "Too many requests in flight (limit " + limit + ", " + queueDepth + " queued)");
+        this.limit = limit;
+        this.queueDepth = queueDepth;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+}
@@ -0,0 +1,94 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the validators (entity tag and last modified date) of responses
+ * to GET requests, along with the response bodies, so that the requests can
+ * be made conditional and a <code>304 Not Modified</code> response answered
+ * with the remembered body. Bodies are kept serialized, so that each caller
+ * deserializes its own copy.
+ */
+final class ConditionalGetCache {
+
+    /**
+     * A remembered response.
+     */
+    static final class Entry {
+
+        private final String entityTag;
+        private final String lastModified;
+        private final byte[] body;
+
+        Entry(String entityTag, String lastModified, byte[] body) {
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        String getEntityTag() {
+            return entityTag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    ConditionalGetCache() {
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    Entry get(String path) {
+        return this.entries.get(path);
+    }
+
+    /**
+     * Remembers a response if it has validators, or forgets any previous
+     * response for the path if it does not.
+     *
+     * @param path the request path, including any query string.
+     * @param entityTag the value of the <code>ETag</code> header, or
+     * <code>null</code>.
+     * @param lastModified the value of the <code>Last-Modified</code>
+     * header, or <code>null</code>.
+     * @param body the response body, which must not be modified afterward.
+     */
+    void put(String path, String entityTag, String lastModified, byte[] body) {
+        if (entityTag == null && lastModified == null) {
+            this.entries.remove(path);
+        } else {
+            this.entries.put(path, new Entry(entityTag, lastModified, body));
+        }
+    }
+
+    void clear() {
+        this.entries.clear();
+    }
+}
@@ -0,0 +1,383 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.eurekaclinical.common.comm.User;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.eurekaclinical.eureka.client.comm.CohortDestination;
+import org.eurekaclinical.eureka.client.comm.Destination;
+import org.eurekaclinical.eureka.client.comm.I2B2Destination;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobEvent;
+import org.eurekaclinical.eureka.client.comm.JobFilter;
+import org.eurekaclinical.eureka.client.comm.JobMode;
+import org.eurekaclinical.eureka.client.comm.JobSpec;
+import org.eurekaclinical.eureka.client.comm.Phenotype;
+import org.eurekaclinical.eureka.client.comm.SourceConfig;
+import org.eurekaclinical.eureka.client.comm.SourceConfigParams;
+import org.eurekaclinical.eureka.client.comm.Statistics;
+import org.eurekaclinical.eureka.client.comm.SystemPhenotype;
+
+/**
+ * Non-blocking companion to {@link EurekaClient}. Each method submits the
+ * corresponding {@link EurekaClient} call to an executor and returns a
+ * {@link CompletableFuture} for its result, so that independent calls can be
+ * issued concurrently and composed. A failed call completes its future
+ * exceptionally with the {@link ClientException}, or for file transfers the
+ * {@link IOException}, that the blocking method threw.
+ *
+ * Every method of {@link EurekaClient} that makes a request has a
+ * counterpart here, except two:
+ * {@link EurekaClient#awaitJob(Long, long, java.util.concurrent.TimeUnit)}
+ * already returns a future, and
+ * {@link EurekaClient#iterateJobs(JobFilter, int)} makes no request until
+ * its iterator is used and then requests each page as the iterator reaches
+ * it. Likewise, the iterators and streams that futures here complete with
+ * read the rest of their response as they are consumed, blocking the
+ * consuming thread.
+ *
+ * Calls run on the executor's threads rather than the caller's. If the
+ * wrapped client depends on per-thread state of the calling thread, such as
+ * the servlet container's authentication context, supply an executor that
+ * makes that state available to its threads.
+ */
+public class EurekaAsyncClient {
+
+    /**
+     * A blocking call to make on the executor.
+     *
+     * @param <T> the call's result type.
+     */
+    private interface ClientCall<T> {
+
+        T call() throws ClientException, IOException;
+    }
+
+    /**
+     * A blocking call without a result to make on the executor.
+     */
+    private interface VoidClientCall {
+
+        void call() throws ClientException;
+    }
+
+    private final EurekaClient client;
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous client that runs calls on a shared pool of
+     * daemon threads.
+     *
+     * @param client the blocking client to delegate to. Cannot be
+     * <code>null</code>.
+     */
+    public EurekaAsyncClient(EurekaClient client) {
+        this(client, ClientExecutors.defaultExecutor());
+    }
+
+    /**
+     * Creates an asynchronous client that runs calls on the given executor.
+     *
+     * @param client the blocking client to delegate to. Cannot be
+     * <code>null</code>.
+     * @param executor the executor on which to make calls. Cannot be
+     * <code>null</code>.
+     */
+    public EurekaAsyncClient(EurekaClient client, Executor executor) {
+        if (client == null) {
+            throw new IllegalArgumentException("client cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        this.client = client;
+        this.executor = executor;
+    }
+
+    public EurekaClient getClient() {
+        return client;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public CompletableFuture<Void> updateUser(User inUser, Long userId) {
+        return run(() -> this.client.updateUser(inUser, userId));
+    }
+
+    public CompletableFuture<Long> submitJob(JobSpec inUpload) {
+        return supply(() -> this.client.submitJob(inUpload));
+    }
+
+    public CompletableFuture<Void> upload(String fileName, String sourceId,
+            String fileTypeId, InputStream inputStream) {
+        return run(() -> this.client.upload(fileName, sourceId, fileTypeId, inputStream));
+    }
+
+    /**
+     * Uploads a file as by
+     * {@link EurekaClient#uploadFile(String, String, Path, TransferListener)}.
+     * The listener is called on the executor's thread.
+     *
+     * @param sourceId the data source's unique name.
+     * @param fileTypeId the unique name of the upload slot.
+     * @param file the file to upload. Cannot be <code>null</code>.
+     * @param listener a listener to notify of progress, or
+     * <code>null</code>.
+     * @return a future for the upload's size and throughput.
+     */
+    public CompletableFuture<TransferStatistics> uploadFile(String sourceId, String fileTypeId,
+            Path file, TransferListener listener) {
+        return supply(() -> this.client.uploadFile(sourceId, fileTypeId, file, listener));
+    }
+
+    public CompletableFuture<BulkUploadResult> uploadFiles(String sourceId, Map<String, Path> files,
+            int maxConcurrentUploads, long maxBytesPerSecond) {
+        return supply(() -> this.client.uploadFiles(sourceId, files, maxConcurrentUploads, maxBytesPerSecond));
+    }
+
+    public CompletableFuture<BulkUploadResult> uploadFiles(SourceConfigParams sourceConfigParams,
+            Map<SourceConfigParams.Upload, Path> files, int maxConcurrentUploads, long maxBytesPerSecond) {
+        return supply(() -> this.client.uploadFiles(sourceConfigParams, files,
+                maxConcurrentUploads, maxBytesPerSecond));
+    }
+
+    public CompletableFuture<Job> getJob(Long jobId) {
+        return supply(() -> this.client.getJob(jobId));
+    }
+
+    public CompletableFuture<List<JobEvent>> getJobEvents(Long jobId, Long afterEventId) {
+        return supply(() -> this.client.getJobEvents(jobId, afterEventId));
+    }
+
+    public CompletableFuture<JobEvent> getJobEvent(Long jobId, Long eventId) {
+        return supply(() -> this.client.getJobEvent(jobId, eventId));
+    }
+
+    /**
+     * Brings a job up to date as by {@link EurekaClient#refreshJob(Job)}.
+     * The job is modified on the executor's thread, so it must not be used
+     * until the future completes.
+     *
+     * @param job the job to update. Cannot be <code>null</code>.
+     * @return a future for whether the job has new events.
+     */
+    public CompletableFuture<Boolean> refreshJob(Job job) {
+        return supply(() -> this.client.refreshJob(job));
+    }
+
+    public CompletableFuture<JobMode> getJobMode(Long jobModeId) {
+        return supply(() -> this.client.getJobMode(jobModeId));
+    }
+
+    public CompletableFuture<JobMode> getJobModeByName(String name) {
+        return supply(() -> this.client.getJobModeByName(name));
+    }
+
+    public CompletableFuture<Statistics> getJobStats(Long jobId, String propId) {
+        return supply(() -> this.client.getJobStats(jobId, propId));
+    }
+
+    public CompletableFuture<List<Job>> getJobs() {
+        return supply(this.client::getJobs);
+    }
+
+    public CompletableFuture<List<Job>> getJobs(JobFilter filter, int offset, int limit) {
+        return supply(() -> this.client.getJobs(filter, offset, limit));
+    }
+
+    public CompletableFuture<List<Job>> getJobs(boolean summarized) {
+        return supply(() -> this.client.getJobs(summarized));
+    }
+
+    public CompletableFuture<List<Job>> getJobsDesc(boolean summarized) {
+        return supply(() -> this.client.getJobsDesc(summarized));
+    }
+
+    public CompletableFuture<List<JobMode>> getJobModes() {
+        return supply(this.client::getJobModes);
+    }
+
+    public CompletableFuture<List<Job>> getJobsDesc() {
+        return supply(this.client::getJobsDesc);
+    }
+
+    /**
+     * Requests the jobs as by {@link EurekaClient#iterateJobs()}. The future
+     * completes when the response headers have arrived; the caller consumes
+     * or closes the returned iterator.
+     *
+     * @return a future for an iterator over the jobs, in ascending order.
+     */
+    public CompletableFuture<JobIterator> iterateJobs() {
+        return supply(() -> this.client.iterateJobs());
+    }
+
+    /**
+     * Requests the jobs as by {@link EurekaClient#iterateJobsDesc()}, as
+     * {@link #iterateJobs()} does.
+     *
+     * @return a future for an iterator over the jobs, in descending order.
+     */
+    public CompletableFuture<JobIterator> iterateJobsDesc() {
+        return supply(() -> this.client.iterateJobsDesc());
+    }
+
+    public CompletableFuture<List<Job>> getLatestJob() {
+        return supply(this.client::getLatestJob);
+    }
+
+    public CompletableFuture<List<Phenotype>> getPhenotypes(String[] inKeys, boolean summarized) {
+        return supply(() -> this.client.getPhenotypes(inKeys, summarized));
+    }
+
+    public CompletableFuture<List<Phenotype>> getUserPhenotypes(boolean summarized) {
+        return supply(() -> this.client.getUserPhenotypes(summarized));
+    }
+
+    public CompletableFuture<Phenotype> getUserPhenotype(String inKey, boolean summarized) {
+        return supply(() -> this.client.getUserPhenotype(inKey, summarized));
+    }
+
+    public CompletableFuture<URI> saveUserPhenotype(Phenotype inPhenotype) {
+        return supply(() -> this.client.saveUserPhenotype(inPhenotype));
+    }
+
+    public CompletableFuture<Void> updateUserPhenotype(Long inId, Phenotype inPhenotype) {
+        return run(() -> this.client.updateUserPhenotype(inId, inPhenotype));
+    }
+
+    public CompletableFuture<Void> deleteUserPhenotype(Long inUserId, Long inId) {
+        return run(() -> this.client.deleteUserPhenotype(inUserId, inId));
+    }
+
+    public CompletableFuture<List<SystemPhenotype>> getSystemPhenotypes() {
+        return supply(this.client::getSystemPhenotypes);
+    }
+
+    public CompletableFuture<List<SystemPhenotype>> getSystemPhenotypes(List<String> inKeys, boolean summarize) {
+        return supply(() -> this.client.getSystemPhenotypes(inKeys, summarize));
+    }
+
+    public CompletableFuture<SystemPhenotype> getSystemPhenotype(String inKey, boolean summarize) {
+        return supply(() -> this.client.getSystemPhenotype(inKey, summarize));
+    }
+
+    public CompletableFuture<List<SourceConfig>> getSourceConfigs() {
+        return supply(this.client::getSourceConfigs);
+    }
+
+    public CompletableFuture<SourceConfig> getSourceConfig(String sourceConfigId) {
+        return supply(() -> this.client.getSourceConfig(sourceConfigId));
+    }
+
+    public CompletableFuture<List<SourceConfigParams>> getSourceConfigParams() {
+        return supply(this.client::getSourceConfigParams);
+    }
+
+    public CompletableFuture<Long> createDestination(Destination destination) {
+        return supply(() -> this.client.createDestination(destination));
+    }
+
+    public CompletableFuture<Void> updateDestination(Destination destination) {
+        return run(() -> this.client.updateDestination(destination));
+    }
+
+    public CompletableFuture<List<Destination>> getDestinations() {
+        return supply(this.client::getDestinations);
+    }
+
+    public CompletableFuture<List<CohortDestination>> getCohortDestinations() {
+        return supply(this.client::getCohortDestinations);
+    }
+
+    public CompletableFuture<List<I2B2Destination>> getI2B2Destinations() {
+        return supply(this.client::getI2B2Destinations);
+    }
+
+    public CompletableFuture<Destination> getDestination(String destinationId) {
+        return supply(() -> this.client.getDestination(destinationId));
+    }
+
+    public CompletableFuture<Void> deleteDestination(Long id, String destinationId) {
+        return run(() -> this.client.deleteDestination(id, destinationId));
+    }
+
+    public CompletableFuture<List<String>> getSystemPhenotypeSearchResults(String searchKey) {
+        return supply(() -> this.client.getSystemPhenotypeSearchResults(searchKey));
+    }
+
+    public CompletableFuture<List<SystemPhenotype>> getSystemPhenotypeSearchResultsBySearchKey(String searchKey) {
+        return supply(() -> this.client.getSystemPhenotypeSearchResultsBySearchKey(searchKey));
+    }
+
+    /**
+     * Requests a destination's output. The future completes when the response
+     * headers have arrived; the caller reads and closes the returned stream.
+     *
+     * @param destinationId the destination's unique name.
+     * @return a future for the output stream.
+     */
+    public CompletableFuture<InputStream> getOutput(String destinationId) {
+        return supply(() -> this.client.getOutput(destinationId));
+    }
+
+    public CompletableFuture<TransferStatistics> downloadOutput(String destinationId, Path target) {
+        return supply(() -> this.client.downloadOutput(destinationId, target));
+    }
+
+    public CompletableFuture<TransferStatistics> downloadOutputResumable(String destinationId, Path target,
+            int parallelRanges) {
+        return supply(() -> this.client.downloadOutputResumable(destinationId, target, parallelRanges));
+    }
+
+    private <T> CompletableFuture<T> supply(ClientCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (ClientException | IOException | RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> run(VoidClientCall call) {
+        return supply(() -> {
+            call.call();
+            return null;
+        });
+    }
+}
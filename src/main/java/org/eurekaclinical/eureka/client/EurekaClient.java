@@ -19,20 +19,49 @@ package org.eurekaclinical.eureka.client;
  * limitations under the License.
  * #L%
  */
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
 import com.sun.jersey.multipart.FormDataBodyPart;
 import com.sun.jersey.multipart.FormDataMultiPart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.JavaType;
 import org.eurekaclinical.common.comm.Role;
 import org.eurekaclinical.common.comm.User;
 import org.eurekaclinical.common.comm.clients.AuthorizingEurekaClinicalClient;
@@ -42,6 +71,8 @@ import org.eurekaclinical.eureka.client.comm.Destination;
 import org.eurekaclinical.eureka.client.comm.DestinationType;
 import org.eurekaclinical.eureka.client.comm.I2B2Destination;
 import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobEvent;
+import org.eurekaclinical.eureka.client.comm.JobFilter;
 import org.eurekaclinical.eureka.client.comm.JobMode;
 import org.eurekaclinical.eureka.client.comm.JobSpec;
 import org.eurekaclinical.eureka.client.comm.Phenotype;
@@ -61,6 +92,10 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EurekaClient.class);
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String GZIP = "gzip";
+
     /*private static final GenericType<List<TimeUnit>> TimeUnitList = new GenericType<List<TimeUnit>>() {
     };
     private static final GenericType<List<FrequencyType>> FrequencyTypeList = new GenericType<List<FrequencyType>>() {
@@ -80,6 +115,8 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
     };
     private static final GenericType<List<Job>> JobList = new GenericType<List<Job>>() {
     };
+    private static final GenericType<List<JobEvent>> JobEventList = new GenericType<List<JobEvent>>() {
+    };
     private static final GenericType<List<JobMode>> JobModeList = new GenericType<List<JobMode>>() {
     };
     private static final GenericType<List<User>> UserList = new GenericType<List<User>>() {
@@ -99,11 +136,81 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
     private static final GenericType<List<String>> SystemPhenotypeSearchResultsList = new GenericType<List<String>>() {
     };
 
+    /**
+     * The default maximum number of requests that a single call may have in
+     * flight when it fans out into multiple requests.
+     */
+    public static final int DEFAULT_MAX_PARALLEL_REQUESTS = 8;
+
+    /**
+     * The default maximum number of keys to send in a single system
+     * phenotype request.
+     */
+    public static final int DEFAULT_SYSTEM_PHENOTYPE_BATCH_SIZE = 500;
+
+    /**
+     * Makes one attempt at a request.
+     */
+    interface Attempt<T> {
+
+        T send() throws ClientException;
+    }
+
+    /**
+     * Sends a request once its route's permits have been acquired.
+     */
+    private interface Exchange<T> {
+
+        T send(RouteClass routeClass, RequestMeter meter) throws ClientException;
+    }
+
+    /**
+     * Checks a response's status and reads its body.
+     */
+    private interface ResponseReader<T> {
+
+        T read(TransportResponse response, RequestMeter meter) throws ClientException;
+    }
+
     private final URI eurekaUrl;
+    private volatile Executor executor;
+    private volatile int maxParallelRequests;
+    private volatile int systemPhenotypeBatchSize;
+    private volatile SystemPhenotypeLoader systemPhenotypeLoader;
+    private volatile SystemPhenotypeCache systemPhenotypeCache;
+    private final ConditionalGetCache conditionalGetCache;
+    private volatile boolean conditionalGetEnabled;
+    private final JobWaiter jobWaiter;
+    private volatile boolean requestCompressionEnabled;
+    private volatile EurekaTransport transport;
+    private volatile RequestDecorator requestDecorator;
+    private final ClientMetricsRecorder metrics;
+    private volatile ClientMetricsListener metricsListener;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreakerPolicy circuitBreakerPolicy;
+    private volatile HedgingPolicy hedgingPolicy;
+    private final RequestCoalescer requestCoalescer;
+    private volatile boolean requestCoalescingEnabled;
+    private volatile Supplier<String> principalSupplier;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile Bulkhead transferBulkhead;
+    private volatile Bulkhead metadataBulkhead;
+    private volatile EurekaTransport transferTransport;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers;
+    private final ConcurrentMap<String, BandwidthLimiter> uploadLimiters;
 
     public EurekaClient(String inEurekaUrl) {
         super(null);
         this.eurekaUrl = URI.create(inEurekaUrl);
+        this.executor = ClientExecutors.defaultExecutor();
+        this.maxParallelRequests = DEFAULT_MAX_PARALLEL_REQUESTS;
+        this.systemPhenotypeBatchSize = DEFAULT_SYSTEM_PHENOTYPE_BATCH_SIZE;
+        this.conditionalGetCache = new ConditionalGetCache();
+        this.jobWaiter = new JobWaiter(this);
+        this.metrics = new ClientMetricsRecorder();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.uploadLimiters = new ConcurrentHashMap<>();
+        this.requestCoalescer = new RequestCoalescer();
     }
 
     @Override
@@ -111,49 +218,932 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         return this.eurekaUrl;
     }
 
+    /**
+     * Gets the executor on which calls that fan out into multiple requests
+     * make those requests.
+     *
+     * @return the executor. Never <code>null</code>.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor on which calls that fan out into multiple requests
+     * make those requests. The default is a shared pool of daemon threads.
+     * It may be bounded: a thread that waits for such a call makes any of
+     * its requests that the executor has not started.
+     *
+     * @param executor the executor, or <code>null</code> to use the default.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor != null ? executor : ClientExecutors.defaultExecutor();
+    }
+
+    public int getMaxParallelRequests() {
+        return maxParallelRequests;
+    }
+
+    /**
+     * Sets the maximum number of requests that a single call may have in
+     * flight when it fans out into multiple requests. The default is
+     * {@link #DEFAULT_MAX_PARALLEL_REQUESTS}.
+     *
+     * @param maxParallelRequests a positive number.
+     */
+    public void setMaxParallelRequests(int maxParallelRequests) {
+        if (maxParallelRequests < 1) {
+            throw new IllegalArgumentException("maxParallelRequests must be positive");
+        }
+        this.maxParallelRequests = maxParallelRequests;
+    }
+
+    public int getSystemPhenotypeBatchSize() {
+        return systemPhenotypeBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of keys to send in a single system phenotype
+     * request. Larger lookups are split into batches of this size that are
+     * requested in parallel. The default is
+     * {@link #DEFAULT_SYSTEM_PHENOTYPE_BATCH_SIZE}.
+     *
+     * @param systemPhenotypeBatchSize a positive number.
+     */
+    public void setSystemPhenotypeBatchSize(int systemPhenotypeBatchSize) {
+        if (systemPhenotypeBatchSize < 1) {
+            throw new IllegalArgumentException("systemPhenotypeBatchSize must be positive");
+        }
+        this.systemPhenotypeBatchSize = systemPhenotypeBatchSize;
+    }
+
+    public SystemPhenotypeLoader getSystemPhenotypeLoader() {
+        return systemPhenotypeLoader;
+    }
+
+    /**
+     * Sets a loader through which {@link #getSystemPhenotype(String, boolean)}
+     * batches concurrent lookups. The loader must have been created for this
+     * client. By default, there is no loader, and each lookup is a separate
+     * request.
+     *
+     * @param systemPhenotypeLoader a loader, or <code>null</code> to send
+     * each lookup separately.
+     */
+    public void setSystemPhenotypeLoader(SystemPhenotypeLoader systemPhenotypeLoader) {
+        if (systemPhenotypeLoader != null && systemPhenotypeLoader.getClient() != this) {
+            throw new IllegalArgumentException("systemPhenotypeLoader belongs to a different client");
+        }
+        this.systemPhenotypeLoader = systemPhenotypeLoader;
+    }
+
+    public SystemPhenotypeCache getSystemPhenotypeCache() {
+        return systemPhenotypeCache;
+    }
+
+    /**
+     * Sets a cache for system phenotypes and system phenotype search
+     * results. When set, {@link #getSystemPhenotypes(List, boolean)},
+     * {@link #getSystemPhenotype(String, boolean)} and
+     * {@link #getSystemPhenotypeSearchResultsBySearchKey(String)} return
+     * cached phenotypes when they can and only request the rest. By default,
+     * there is no cache.
+     *
+     * @param systemPhenotypeCache a cache, or <code>null</code> for no
+     * caching.
+     */
+    public void setSystemPhenotypeCache(SystemPhenotypeCache systemPhenotypeCache) {
+        this.systemPhenotypeCache = systemPhenotypeCache;
+    }
+
+    public boolean isConditionalGetEnabled() {
+        return conditionalGetEnabled;
+    }
+
+    /**
+     * Sets whether to make conditional requests for collections that rarely
+     * change: {@link #getSourceConfigs()}, {@link #getSourceConfigParams()},
+     * {@link #getJobModes()} and {@link #getDestinations()}. When enabled, the
+     * client remembers the <code>ETag</code> and <code>Last-Modified</code>
+     * headers of each response along with its body, and sends them back in
+     * <code>If-None-Match</code> and <code>If-Modified-Since</code> headers.
+     * If the server responds with <code>304 Not Modified</code>, the
+     * collection is parsed from the remembered body without transferring it
+     * again, so each call returns its own copy that the caller may modify.
+     * Remembered responses are not kept per user, so do not enable this on a
+     * client that makes requests on behalf of more than one user. Disabled by
+     * default.
+     *
+     * @param conditionalGetEnabled whether to make conditional requests.
+     */
+    public void setConditionalGetEnabled(boolean conditionalGetEnabled) {
+        this.conditionalGetEnabled = conditionalGetEnabled;
+        if (!conditionalGetEnabled) {
+            this.conditionalGetCache.clear();
+        }
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    /**
+     * Sets whether concurrent identical GET requests for JSON resources, such
+     * as {@link #getJob(Long)}, {@link #getJobStats(Long, String)} and
+     * {@link #getDestination(String)}, share one request. Requests are
+     * identical when they have the same path, query parameters and
+     * {@link #setPrincipalSupplier principal}. A request that arrives while
+     * an identical one is in flight waits for it, and receives its result or
+     * its exception. Each waiting caller gets its own copy of the result,
+     * so callers may modify what they receive. Nothing is cached once the
+     * request completes. Disabled by default.
+     *
+     * @param requestCoalescingEnabled whether to coalesce requests.
+     */
+    public void setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+        this.requestCoalescingEnabled = requestCoalescingEnabled;
+    }
+
+    public Supplier<String> getPrincipalSupplier() {
+        return principalSupplier;
+    }
+
+    /**
+     * Sets how to identify the user on whose behalf the current thread makes
+     * requests, for example from the servlet request's remote user, so that
+     * {@link #setRequestCoalescingEnabled coalesced} requests are only shared
+     * between calls for the same user. Without a supplier, requests are
+     * shared between all users, so set one on a client that makes requests
+     * on behalf of more than one user.
+     *
+     * @param principalSupplier supplies the current user's name, or
+     * <code>null</code>.
+     */
+    public void setPrincipalSupplier(Supplier<String> principalSupplier) {
+        this.principalSupplier = principalSupplier;
+    }
+
+    /**
+     * Gets how many calls have received the result of an identical request
+     * that was already in flight instead of making their own.
+     *
+     * @return the number of calls.
+     */
+    public long getCoalescedRequestCount() {
+        return this.requestCoalescer.getCoalescedCount();
+    }
+
+    public boolean isRequestCompressionEnabled() {
+        return requestCompressionEnabled;
+    }
+
+    /**
+     * Sets whether to gzip-compress request bodies as they are sent, with a
+     * <code>Content-Encoding: gzip</code> header. This applies to the JSON
+     * bodies of the methods that create or update resources, such as
+     * {@link #submitJob(JobSpec)}, {@link #createDestination(Destination)}
+     * and {@link #updateUserPhenotype(Long, Phenotype)}, to the form bodies
+     * of batched system phenotype lookups, and to the files sent by
+     * {@link #uploadFile(String, String, Path, TransferListener)} and
+     * {@link #uploadFiles(String, Map, int, long)}. It does not apply to
+     * {@link #upload(String, String, String, InputStream)}, whose multipart
+     * body the inherited Jersey client assembles. The body is split into
+     * blocks that are compressed concurrently on a shared pool with a thread
+     * per processor, so that compression keeps up with fast networks.
+     * Because the compressed length is not known in advance, compressed
+     * bodies are sent without a <code>Content-Length</code> header. The
+     * server must accept gzip-encoded requests. Disabled by default.
+     *
+     * Whether or not this is enabled, every request except that multipart
+     * upload and requests for a range of an output asks for a
+     * gzip-compressed response with an <code>Accept-Encoding</code> header.
+     *
+     * @param requestCompressionEnabled whether to compress request bodies.
+     */
+    public void setRequestCompressionEnabled(boolean requestCompressionEnabled) {
+        this.requestCompressionEnabled = requestCompressionEnabled;
+    }
+
+    public EurekaTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport with which to send requests, for example a
+     * {@link PooledHttpTransport} to control connection pooling and socket
+     * options. It carries every request, the JSON API's GETs, POSTs, PUTs
+     * and DELETEs as well as uploads and output downloads, except for
+     * {@link #upload(String, String, String, InputStream)}'s multipart
+     * request and, if there is a
+     * {@link #setTransferTransport transfer transport}, transfers. When no
+     * transport is set, requests are sent with the Jersey client that this
+     * client inherits. A transport does not apply the inherited client's
+     * filters, so any authentication that they add must be added with a
+     * {@link #setRequestDecorator request decorator}. The caller remains
+     * responsible for closing the transport.
+     *
+     * @param transport a transport, or <code>null</code> to use the
+     * inherited Jersey client, which is the default.
+     */
+    public void setTransport(EurekaTransport transport) {
+        this.transport = transport;
+    }
+
+    public RequestDecorator getRequestDecorator() {
+        return requestDecorator;
+    }
+
+    /**
+     * Sets a decorator that is applied to every request sent with the
+     * {@link #setTransport transport} or the
+     * {@link #setTransferTransport transfer transport}, to add the
+     * authentication that the inherited Jersey client's filters would add.
+     *
+     * @param requestDecorator a decorator, or <code>null</code> for none,
+     * which is the default.
+     */
+    public void setRequestDecorator(RequestDecorator requestDecorator) {
+        this.requestDecorator = requestDecorator;
+    }
+
+    public ClientMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets a listener to notify of each request, in addition to the
+     * client's own {@link #getMetrics() recorder}.
+     *
+     * @param metricsListener a listener, or <code>null</code> for none.
+     */
+    public void setMetricsListener(ClientMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Gets the statistics of the requests that this client has made: counts,
+     * status codes, bytes and latency histograms by route template.
+     *
+     * @return the recorder. Never <code>null</code>.
+     */
+    public ClientMetricsRecorder getMetrics() {
+        return metrics;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets how to retry GET requests and system phenotype lookups that fail
+     * transiently, for example with <code>503 Service Unavailable</code>
+     * while the service is redeployed. Other requests are never retried. By
+     * default, there is no policy, and nothing is retried.
+     *
+     * @param retryPolicy a policy, or <code>null</code> to not retry.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets when to hedge GET requests and system phenotype lookups by sending
+     * a duplicate of a request that is slow to respond and using whichever
+     * response arrives first. Only requests for metadata are hedged, not
+     * uploads, output downloads or streamed job listings such as
+     * {@link #iterateJobs()}. Hedged requests are sent on the
+     * {@link #setExecutor executor} while the calling thread waits; a
+     * request that the executor is too busy to start is sent by the calling
+     * thread and not hedged. By default, there is no policy, and nothing is
+     * hedged.
+     *
+     * @param hedgingPolicy a policy, or <code>null</code> to not hedge.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets a limiter on how many requests this client has in flight to the
+     * service, which adapts to the service's latency so that calls that fan
+     * out cannot overload it. A request is held by the limiter until its
+     * response's headers arrive. The limiter should not be shared between
+     * clients of different services. By default, there is no limiter.
+     *
+     * @param concurrencyLimiter a limiter, or <code>null</code> for no
+     * limit.
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Gets the bulkhead of a class of routes.
+     *
+     * @param routeClass the class. Cannot be <code>null</code>.
+     * @return the bulkhead, or <code>null</code> if there is none.
+     */
+    public Bulkhead getBulkhead(RouteClass routeClass) {
+        if (routeClass == null) {
+            throw new IllegalArgumentException("routeClass cannot be null");
+        }
+        return routeClass == RouteClass.TRANSFER ? this.transferBulkhead : this.metadataBulkhead;
+    }
+
+    /**
+     * Sets a bulkhead that limits how many requests of a class of routes are
+     * open at once, independently of the other class. For example, a
+     * transfer bulkhead keeps large uploads and output downloads from
+     * taking all of the capacity that quick metadata calls need. Routes are
+     * classified by their templates; see {@link RouteClass}. By default,
+     * there are no bulkheads.
+     *
+     * @param routeClass the class. Cannot be <code>null</code>.
+     * @param bulkhead a bulkhead, or <code>null</code> for no limit.
+     */
+    public void setBulkhead(RouteClass routeClass, Bulkhead bulkhead) {
+        if (routeClass == null) {
+            throw new IllegalArgumentException("routeClass cannot be null");
+        }
+        if (routeClass == RouteClass.TRANSFER) {
+            this.transferBulkhead = bulkhead;
+        } else {
+            this.metadataBulkhead = bulkhead;
+        }
+    }
+
+    public EurekaTransport getTransferTransport() {
+        return transferTransport;
+    }
+
+    /**
+     * Sets a transport for {@link RouteClass#TRANSFER transfer} routes only,
+     * so that uploads and output downloads use their own connections, for
+     * example a separate {@link PooledHttpTransport} with its own connection
+     * limits and socket options. Metadata routes continue to use the
+     * {@link #setTransport transport}. As with that transport, requests are
+     * decorated with the {@link #setRequestDecorator request decorator}, and
+     * the caller remains responsible for closing it.
+     *
+     * @param transferTransport a transport, or <code>null</code> to send
+     * transfers like every other request, which is the default.
+     */
+    public void setTransferTransport(EurekaTransport transferTransport) {
+        this.transferTransport = transferTransport;
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    /**
+     * Sets when to stop sending requests to an endpoint that keeps failing.
+     * Setting a policy resets every endpoint's breaker. By default, there is
+     * no policy, and requests are always sent.
+     *
+     * @param circuitBreakerPolicy a policy, or <code>null</code> to not use
+     * circuit breakers.
+     */
+    public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        this.circuitBreakerPolicy = circuitBreakerPolicy;
+        this.circuitBreakers.clear();
+    }
+
+    /**
+     * Gets the circuit breakers of the endpoints that have been requested
+     * since the {@link #setCircuitBreakerPolicy circuit breaker policy} was
+     * set.
+     *
+     * @return a new list of breakers. Empty if there is no policy.
+     */
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return new ArrayList<>(this.circuitBreakers.values());
+    }
+
+    /**
+     * Gets the circuit breaker of an endpoint.
+     *
+     * @param method the HTTP method.
+     * @param route the route template, as reported to
+     * {@link ClientMetricsListener}.
+     * @return the breaker, or <code>null</code> if there is no policy or the
+     * endpoint has not been requested.
+     */
+    public CircuitBreaker getCircuitBreaker(String method, String route) {
+        return this.circuitBreakers.get(method + " " + route);
+    }
+
+    private <T> T get(String path, Class<T> cls) throws ClientException {
+        return get(path, null, (Type) cls);
+    }
+
+    private <T> T get(String path, Class<T> cls, MultivaluedMap<String, String> queryParams) throws ClientException {
+        return get(path, queryParams, (Type) cls);
+    }
+
+    private <T> T get(String path, GenericType<T> genericType) throws ClientException {
+        return get(path, null, genericType.getType());
+    }
+
+    private <T> T get(String path, GenericType<T> genericType, MultivaluedMap<String, String> queryParams) throws ClientException {
+        return get(path, queryParams, genericType.getType());
+    }
+
+    /**
+     * Makes a GET request for a JSON resource, coalescing it with identical
+     * requests in flight if
+     * {@link #isRequestCoalescingEnabled() coalescing is enabled}.
+     *
+     * @param type the type of the result, with which to deserialize it and
+     * to copy it for coalesced callers.
+     */
+    private <T> T get(String path, MultivaluedMap<String, String> queryParams, Type type) throws ClientException {
+        JavaType javaType = MAPPER.getTypeFactory().constructType(type);
+        Attempt<T> attempt = () -> attemptJson(HttpMethod.GET, path, 0, queryParams, null, null,
+                (response, meter) -> {
+                    ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+                    return readJson(response, javaType, meter);
+                });
+        if (!this.requestCoalescingEnabled) {
+            return call(HttpMethod.GET, path, true, true, attempt);
+        }
+        return this.requestCoalescer.fetch(coalescingKey(path, queryParams),
+                () -> call(HttpMethod.GET, path, true, true, attempt),
+                value -> copyOf(value, type));
+    }
+
+    private <T> T post(String path, MultivaluedMap<String, String> formParams, GenericType<T> genericType) throws ClientException {
+        List<String> keys = formParams != null ? formParams.get("key") : null;
+        int keyCount = keys != null ? keys.size() : 0;
+        byte[] form = formParams != null
+                ? formEncode(formParams).getBytes(StandardCharsets.UTF_8) : new byte[0];
+        JavaType javaType = MAPPER.getTypeFactory().constructType(genericType.getType());
+        return call(HttpMethod.POST, path, true, true, () -> attemptJson(HttpMethod.POST, path, keyCount, null,
+                MediaType.APPLICATION_FORM_URLENCODED, form,
+                (response, meter) -> {
+                    ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+                    return readJson(response, javaType, meter);
+                }));
+    }
+
+    private URI postCreate(String path, Object o) throws ClientException {
+        byte[] json = writeJson(o);
+        return call(HttpMethod.POST, path, false, false, () -> attemptJson(HttpMethod.POST, path, 0, null,
+                MediaType.APPLICATION_JSON, json,
+                (response, meter) -> {
+                    ClientExceptions.ensureStatus(response, ClientResponse.Status.CREATED);
+                    String location = response.getHeaders().getFirst(HttpHeaders.LOCATION);
+                    return location != null ? getResourceUrl().resolve(location) : null;
+                }));
+    }
+
+    private void put(String path, Object o) throws ClientException {
+        byte[] json = writeJson(o);
+        call(HttpMethod.PUT, path, false, false, () -> attemptJson(HttpMethod.PUT, path, 0, null,
+                MediaType.APPLICATION_JSON, json,
+                (response, meter) -> {
+                    ClientExceptions.ensureSuccessful(response);
+                    return null;
+                }));
+    }
+
+    private void delete(String path) throws ClientException {
+        call(HttpMethod.DELETE, path, false, false, () -> attemptJson(HttpMethod.DELETE, path, 0, null, null, null,
+                (response, meter) -> {
+                    ClientExceptions.ensureSuccessful(response);
+                    return null;
+                }));
+    }
+
+    /**
+     * Makes one attempt at a request to the JSON API through
+     * {@link #exchange(RouteClass, RequestMeter, String, String, MultivaluedMap, MultivaluedMap, InputStream)},
+     * so that it is sent with the {@link #setTransport transport} if there
+     * is one, and reads the response before the attempt's permits are
+     * released. The response is closed after it is read.
+     *
+     * @param contentType the body's media type, or <code>null</code> if
+     * there is no body.
+     * @param body the request body, or <code>null</code>. It is sent anew by
+     * each attempt.
+     * @param reader checks the response's status and reads its body.
+     */
+    private <T> T attemptJson(String method, String path, int keyCount,
+            MultivaluedMap<String, String> queryParams, String contentType, byte[] body,
+            ResponseReader<T> reader) throws ClientException {
+        MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        if (contentType != null) {
+            headers.add(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        return attempt(method, path, keyCount, (routeClass, meter) -> {
+            TransportResponse response = decodeResponse(meter.responseReceived(
+                    exchange(routeClass, meter, method, path, queryParams, headers,
+                            body != null ? new ByteArrayInputStream(body) : null)));
+            try {
+                return reader.read(response, meter);
+            } finally {
+                response.close();
+            }
+        });
+    }
+
+    /**
+     * Identifies a GET request for coalescing by its principal, path and
+     * query parameters.
+     */
+    private String coalescingKey(String path, MultivaluedMap<String, String> queryParams) {
+        Supplier<String> supplier = this.principalSupplier;
+        StringBuilder key = new StringBuilder();
+        if (supplier != null) {
+            String principal = supplier.get();
+            if (principal != null) {
+                key.append(principal);
+            }
+        }
+        key.append(' ').append(path);
+        if (queryParams != null && !queryParams.isEmpty()) {
+            key.append('?').append(new TreeMap<>(queryParams));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Copies a deserialized response for a caller that shares it with
+     * others, such as a coalesced caller, so that callers do not share
+     * mutable objects. Strings, numbers and booleans are
+     * immutable and are not copied.
+     */
+    static <T> T copyOf(T value, Type type) throws ClientException {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        try {
+            return MAPPER.readValue(new ByteArrayInputStream(MAPPER.writeValueAsBytes(value)),
+                    MAPPER.getTypeFactory().constructType(type));
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        }
+    }
+
+    /**
+     * Deserializes a JSON response body and closes the response.
+     */
+    private static <T> T readJson(TransportResponse response, JavaType type) throws ClientException {
+        return readJson(response, type, null);
+    }
+
+    /**
+     * Deserializes a JSON response body, measuring the time spent with the
+     * request's meter, and closes the response.
+     *
+     * @param meter the meter of the request, or <code>null</code>.
+     */
+    private static <T> T readJson(TransportResponse response, JavaType type, RequestMeter meter)
+            throws ClientException {
+        try {
+            InputStream in = response.getEntityInputStream();
+            if (meter == null) {
+                return MAPPER.readValue(in, type);
+            }
+            return meter.deserialize(in, body -> MAPPER.readValue(body, type));
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Serializes a request body as JSON.
+     */
+    private static byte[] writeJson(Object o) throws ClientException {
+        try {
+            return MAPPER.writeValueAsBytes(o);
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        }
+    }
+
     public void updateUser(User inUser, Long userId) throws ClientException {
         final String path = "/api/protected/users/" + userId;
-        doPut(path, inUser);
+        put(path, inUser);
     }
 
     public Long submitJob(JobSpec inUpload) throws ClientException {
         final String path = "/api/protected/jobs";
-        URI jobUri = doPostCreate(path, inUpload);
+        URI jobUri = postCreate(path, inUpload);
         return extractId(jobUri);
     }
 
     public void upload(String fileName, String sourceId,
             String fileTypeId, InputStream inputStream)
             throws ClientException {
-        String path = UriBuilder
-                .fromPath("/api/protected/file/upload/")
-                .segment(sourceId)
-                .segment(fileTypeId)
-                .build().toString();
-        FormDataMultiPart part = new FormDataMultiPart();
-        part.bodyPart(
-                new FormDataBodyPart(
-                        FormDataContentDisposition
-                                .name("file")
-                                .fileName(fileName)
-                                .build(),
-                        inputStream, MediaType.APPLICATION_OCTET_STREAM_TYPE));
-        doPostMultipart(path, part);
+        String path = uploadPath(sourceId, fileTypeId);
+        call(HttpMethod.POST, path, false, false, () -> attempt(HttpMethod.POST, path, 0,
+                (routeClass, meter) -> {
+                    FormDataMultiPart part = new FormDataMultiPart();
+                    part.bodyPart(
+                            new FormDataBodyPart(
+                                    FormDataContentDisposition
+                                            .name("file")
+                                            .fileName(fileName)
+                                            .build(),
+                                    meter.countRequest(inputStream),
+                                    MediaType.APPLICATION_OCTET_STREAM_TYPE));
+                    doPostMultipart(path, part);
+                    return null;
+                }));
+    }
+
+    /**
+     * Uploads a file. Unlike {@link #upload(String, String, String, InputStream)},
+     * the multipart request body is not assembled in memory: the file is read
+     * from disk as the body is sent, and the body's exact length, which may
+     * exceed 2 GB, is sent in the <code>Content-Length</code> header, unless
+     * the body is {@link #setRequestCompressionEnabled(boolean) compressed}.
+     * Because the inherited Jersey client buffers request bodies in memory,
+     * the upload must be sent with a {@link #setTransport transport} or a
+     * {@link #setTransferTransport transfer transport} that streams them,
+     * such as {@link PooledHttpTransport}.
+     *
+     * @param sourceId the data source's unique name.
+     * @param fileTypeId the upload slot's unique name.
+     * @param file the file to upload. Its name is used as the uploaded file's
+     * name.
+     * @param listener notified of the number of bytes sent about every
+     * megabyte and when the upload finishes, or <code>null</code>.
+     * @return the upload's size and throughput.
+     * @throws ClientException if the request failed.
+     * @throws IOException if reading the file failed.
+     * @throws IllegalStateException if no transport is set.
+     */
+    public TransferStatistics uploadFile(String sourceId, String fileTypeId,
+            Path file, TransferListener listener) throws ClientException, IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        requireUploadTransport();
+        return doUploadFile(sourceId, fileTypeId, file, listener, null);
+    }
+
+    /**
+     * Uploads several files for a data source at once, as by
+     * {@link #uploadFile(String, String, Path, TransferListener)}, with a
+     * limit on how many are uploaded concurrently and on their combined
+     * bandwidth. The bandwidth limit is shared by every call that uploads
+     * to the same data source, so concurrent calls for a source together
+     * stay within it; if they ask for different limits, the most recent
+     * call's limit applies to all of them. A failed file does not stop the
+     * others.
+     *
+     * @param sourceId the data source's unique name.
+     * @param files the files to upload by the unique name of their upload
+     * slot (file type id). Cannot be <code>null</code>.
+     * @param maxConcurrentUploads the maximum number of files to upload at
+     * once. Must be positive. If there is a
+     * {@link #setBulkhead transfer bulkhead}, no more files are uploaded at
+     * once than it admits.
+     * @param maxBytesPerSecond the maximum combined upload rate, or 0 for no
+     * limit.
+     * @return the outcome of each file's upload and of the upload as a whole.
+     * @throws IllegalStateException if no transport is set.
+     */
+    public BulkUploadResult uploadFiles(String sourceId, Map<String, Path> files,
+            int maxConcurrentUploads, long maxBytesPerSecond) throws ClientException {
+        if (files == null) {
+            throw new IllegalArgumentException("files cannot be null");
+        }
+        if (maxConcurrentUploads < 1) {
+            throw new IllegalArgumentException("maxConcurrentUploads must be positive");
+        }
+        if (maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("maxBytesPerSecond cannot be negative");
+        }
+        requireUploadTransport();
+        long start = System.nanoTime();
+        BandwidthLimiter limiter = maxBytesPerSecond > 0 ? uploadLimiter(sourceId, maxBytesPerSecond) : null;
+        List<String> fileTypeIds = new ArrayList<>(files.keySet());
+        Bulkhead bulkhead = getBulkhead(RouteClass.TRANSFER);
+        int parallelism = bulkhead != null
+                ? Math.min(maxConcurrentUploads, bulkhead.getMaxConcurrent()) : maxConcurrentUploads;
+        FanOut<String, TransferStatistics> uploads = FanOut.start(fileTypeIds, fileTypeId -> {
+            try {
+                return doUploadFile(sourceId, fileTypeId, files.get(fileTypeId), null, limiter);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, parallelism, this.executor);
+        uploads.await();
+        Map<String, TransferStatistics> uploaded = new LinkedHashMap<>();
+        Map<String, Exception> failed = new LinkedHashMap<>();
+        for (int i = 0; i < uploads.size(); i++) {
+            ClientException failure = uploads.getFailure(i);
+            if (failure == null) {
+                uploaded.put(fileTypeIds.get(i), uploads.getResult(i));
+            } else if (failure.getCause() instanceof UncheckedIOException) {
+                failed.put(fileTypeIds.get(i), ((UncheckedIOException) failure.getCause()).getCause());
+            } else {
+                failed.put(fileTypeIds.get(i), failure);
+            }
+        }
+        return new BulkUploadResult(uploaded, failed, System.nanoTime() - start);
+    }
+
+    /**
+     * Uploads the files for a source configuration's upload slots, as by
+     * {@link #uploadFiles(String, Map, int, long)}. The source configuration's
+     * id is the data source's unique name, and each upload slot's
+     * {@link SourceConfigParams.Upload#getSourceId() source id} is its file
+     * type id.
+     *
+     * @param sourceConfigParams the source configuration. Cannot be
+     * <code>null</code>.
+     * @param files the file to upload for each upload slot. Cannot be
+     * <code>null</code>.
+     * @param maxConcurrentUploads the maximum number of files to upload at
+     * once. Must be positive.
+     * @param maxBytesPerSecond the maximum combined upload rate, or 0 for no
+     * limit.
+     * @return the outcome of each file's upload by file type id, and of the
+     * upload as a whole.
+     * @throws IllegalStateException if no transport is set.
+     */
+    public BulkUploadResult uploadFiles(SourceConfigParams sourceConfigParams,
+            Map<SourceConfigParams.Upload, Path> files,
+            int maxConcurrentUploads, long maxBytesPerSecond) throws ClientException {
+        if (sourceConfigParams == null) {
+            throw new IllegalArgumentException("sourceConfigParams cannot be null");
+        }
+        if (files == null) {
+            throw new IllegalArgumentException("files cannot be null");
+        }
+        Map<String, Path> filesByFileTypeId = new LinkedHashMap<>();
+        for (Map.Entry<SourceConfigParams.Upload, Path> me : files.entrySet()) {
+            filesByFileTypeId.put(me.getKey().getSourceId(), me.getValue());
+        }
+        return uploadFiles(sourceConfigParams.getId(), filesByFileTypeId,
+                maxConcurrentUploads, maxBytesPerSecond);
+    }
+
+    /**
+     * Gets the bandwidth limiter that a data source's uploads share, setting
+     * its rate. Data sources are few, so limiters are kept for the life of
+     * the client.
+     */
+    private BandwidthLimiter uploadLimiter(String sourceId, long maxBytesPerSecond) {
+        return this.uploadLimiters.compute(sourceId, (id, existing) -> {
+            if (existing == null) {
+                return new BandwidthLimiter(maxBytesPerSecond);
+            }
+            existing.setBytesPerSecond(maxBytesPerSecond);
+            return existing;
+        });
+    }
+
+    /**
+     * Checks that file uploads will be streamed rather than buffered in
+     * memory by the inherited Jersey client.
+     *
+     * @throws IllegalStateException if neither a transport nor a transfer
+     * transport is set.
+     */
+    private void requireUploadTransport() {
+        if (this.transferTransport == null && this.transport == null) {
+            throw new IllegalStateException(
+                    "Streaming file uploads need a transport; see setTransport and setTransferTransport");
+        }
+    }
+
+    private TransferStatistics doUploadFile(String sourceId, String fileTypeId,
+            Path file, TransferListener listener, BandwidthLimiter limiter) throws ClientException, IOException {
+        long start = System.nanoTime();
+        MultipartFileBody body = new MultipartFileBody("file", file.getFileName().toString(), file);
+        MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+        headers.add(HttpHeaders.CONTENT_TYPE, body.getContentType());
+        headers.add(HttpHeaders.CONTENT_LENGTH, Long.toString(body.getLength()));
+        try (InputStream in = body.open(listener, limiter)) {
+            TransportResponse response = rawPost(uploadPath(sourceId, fileTypeId), in, headers);
+            ClientExceptions.ensureStatus(response, ClientResponse.Status.OK,
+                    ClientResponse.Status.CREATED, ClientResponse.Status.NO_CONTENT);
+            response.close();
+        }
+        return new TransferStatistics(body.getFileSize(), System.nanoTime() - start);
     }
 
     public Job getJob(Long jobId) throws ClientException {
         final String path = "/api/protected/jobs/" + jobId;
-        return doGet(path, Job.class);
+        return get(path, Job.class);
     }
     
+    /**
+     * Gets a job's events that occurred after a given event. Polling a job
+     * this way transfers only what is new rather than all of the job's events
+     * each time.
+     *
+     * @param jobId the job's unique identifier. Cannot be <code>null</code>.
+     * @param afterEventId the unique identifier of the last event already
+     * seen, or <code>null</code> for all of the job's events.
+     * @return the newer events, in order of occurrence.
+     * @throws ClientException if the request failed.
+     */
+    public List<JobEvent> getJobEvents(Long jobId, Long afterEventId) throws ClientException {
+        if (jobId == null) {
+            throw new IllegalArgumentException("jobId cannot be null");
+        }
+        final String path = "/api/protected/jobs/" + jobId + "/events";
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        if (afterEventId != null) {
+            queryParams.add("after", afterEventId.toString());
+        }
+        return get(path, JobEventList, queryParams);
+    }
+
+    /**
+     * Gets one of a job's events, including its exception stack trace.
+     *
+     * @param jobId the job's unique identifier. Cannot be <code>null</code>.
+     * @param eventId the event's unique identifier. Cannot be
+     * <code>null</code>.
+     * @return the event.
+     * @throws ClientException if the request failed.
+     */
+    public JobEvent getJobEvent(Long jobId, Long eventId) throws ClientException {
+        if (jobId == null) {
+            throw new IllegalArgumentException("jobId cannot be null");
+        }
+        if (eventId == null) {
+            throw new IllegalArgumentException("eventId cannot be null");
+        }
+        final String path = "/api/protected/jobs/" + jobId + "/events/" + eventId;
+        return get(path, JobEvent.class);
+    }
+
+    /**
+     * Brings a job retrieved earlier up to date by requesting only the
+     * events that occurred after its most recent one and merging them into
+     * it with {@link JobMerger#merge(Job, List)}.
+     *
+     * @param job the job to update. Cannot be <code>null</code>.
+     * @return whether the job has new events.
+     * @throws ClientException if the request failed.
+     */
+    public boolean refreshJob(Job job) throws ClientException {
+        if (job == null) {
+            throw new IllegalArgumentException("job cannot be null");
+        }
+        return JobMerger.merge(job, getJobEvents(job.getId(), JobMerger.lastEventId(job)));
+    }
+
+    /**
+     * Waits for a job to finish, that is, to reach status
+     * {@link org.eurekaclinical.eureka.client.comm.JobStatus#COMPLETED} or
+     * {@link org.eurekaclinical.eureka.client.comm.JobStatus#FAILED}. The job
+     * is retrieved with {@link #getJob(Long)} and then polled for new events
+     * with {@link #refreshJob(Job)}, or retrieved whole if the server does
+     * not support that, often at first and then less
+     * often as it ages. All callers waiting for the same job share a single
+     * poller, which stops when the job finishes or when the last caller stops
+     * waiting (its future times out or is cancelled). Errors while polling,
+     * other than the job not being found, are logged and polling continues.
+     *
+     * @param jobId the job's unique identifier. Cannot be <code>null</code>.
+     * @param timeout how long to wait. Must be positive.
+     * @param unit the timeout's unit. Cannot be <code>null</code>.
+     * @return a future for the finished job. It fails with a
+     * {@link java.util.concurrent.TimeoutException} if the job does not finish
+     * in time, or with a {@link ClientException} with status
+     * {@link ClientResponse.Status#NOT_FOUND} if there is no such job.
+     */
+    public CompletableFuture<Job> awaitJob(Long jobId, long timeout, TimeUnit unit) {
+        if (jobId == null) {
+            throw new IllegalArgumentException("jobId cannot be null");
+        }
+        if (timeout < 1) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        return this.jobWaiter.await(jobId, timeout, unit);
+    }
+
     public JobMode getJobMode(Long jobModeId) throws ClientException {
         final String path = "/api/protected/jobmodes/" + jobModeId;
-        return doGet(path, JobMode.class);
+        return get(path, JobMode.class);
     }
     
     public JobMode getJobModeByName(String name) throws ClientException {
         final String path = "/api/protected/jobmodes/byname/" + name;
-        return doGet(path, JobMode.class);
+        return get(path, JobMode.class);
     }
 
     public Statistics getJobStats(Long jobId, String propId) throws ClientException {
@@ -165,31 +1155,201 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
             uriBuilder = uriBuilder.segment(propId);
         }
 
-        return doGet(uriBuilder.build(jobId).toString(), Statistics.class);
+        return get(uriBuilder.build(jobId).toString(), Statistics.class);
     }
 
     public List<Job> getJobs() throws ClientException {
         final String path = "/api/protected/jobs";
-        return doGet(path, JobList);
+        return get(path, JobList);
     }
     
     public List<JobMode> getJobModes() throws ClientException {
         final String path = "/api/protected/jobmodes";
-        return doGet(path, JobModeList);
+        return doConditionalGet(path, JobModeList);
     }
 
     public List<Job> getJobsDesc() throws ClientException {
         final String path = "/api/protected/jobs";
         MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
         queryParams.add("order", "desc");
-        return doGet(path, JobList, queryParams);
+        return get(path, JobList, queryParams);
+    }
+
+    /**
+     * Gets the jobs, optionally without the exception stack traces of their
+     * events. When summarized, the server is asked to leave out the stack
+     * traces, and any that it sends anyway are discarded. Each event instead
+     * retrieves its stack trace with {@link #getJobEvent(Long, Long)} the
+     * first time {@link JobEvent#getExceptionStackTrace()} is called, which
+     * throws {@link UncheckedClientException} if that request fails.
+     *
+     * @param summarized whether to leave out stack traces.
+     * @return the jobs, in ascending order.
+     * @throws ClientException if the request failed.
+     */
+    public List<Job> getJobs(boolean summarized) throws ClientException {
+        if (!summarized) {
+            return getJobs();
+        }
+        final String path = "/api/protected/jobs";
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("summarize", "true");
+        return withStackTraceLoaders(get(path, JobList, queryParams));
+    }
+
+    /**
+     * Gets the jobs in descending order, optionally without the exception
+     * stack traces of their events, as by {@link #getJobs(boolean)}.
+     *
+     * @param summarized whether to leave out stack traces.
+     * @return the jobs, in descending order.
+     * @throws ClientException if the request failed.
+     */
+    public List<Job> getJobsDesc(boolean summarized) throws ClientException {
+        if (!summarized) {
+            return getJobsDesc();
+        }
+        final String path = "/api/protected/jobs";
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("order", "desc");
+        queryParams.add("summarize", "true");
+        return withStackTraceLoaders(get(path, JobList, queryParams));
+    }
+
+    /**
+     * Replaces the stack traces of the jobs' events with loaders that
+     * retrieve them on first access.
+     */
+    private List<Job> withStackTraceLoaders(List<Job> jobs) {
+        for (Job job : jobs) {
+            List<JobEvent> jobEvents = job.getJobEvents();
+            Long jobId = job.getId();
+            if (jobEvents == null || jobId == null) {
+                continue;
+            }
+            for (JobEvent event : jobEvents) {
+                Long eventId = event.getId();
+                if (eventId != null) {
+                    event.setExceptionStackTraceLoader(() -> {
+                        try {
+                            return getJobEvent(jobId, eventId).getExceptionStackTrace();
+                        } catch (ClientException ex) {
+                            throw new UncheckedClientException(ex);
+                        }
+                    });
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Gets the jobs as {@link #getJobs()} does, but returns an iterator that
+     * reads and deserializes them one at a time as it is consumed, so that
+     * memory use does not grow with the number of jobs. The caller must
+     * consume or close the iterator to release the connection.
+     *
+     * @return an iterator over the jobs, in ascending order.
+     * @throws ClientException if the request failed.
+     */
+    public JobIterator iterateJobs() throws ClientException {
+        return doGetJobIterator("/api/protected/jobs", null);
+    }
+
+    /**
+     * Gets the jobs in descending order, as {@link #getJobsDesc()} does, but
+     * returns an iterator that reads and deserializes them one at a time as
+     * it is consumed. The caller must consume or close the iterator to
+     * release the connection.
+     *
+     * @return an iterator over the jobs, in descending order.
+     * @throws ClientException if the request failed.
+     */
+    public JobIterator iterateJobsDesc() throws ClientException {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("order", "desc");
+        return doGetJobIterator("/api/protected/jobs", queryParams);
+    }
+
+    private JobIterator doGetJobIterator(String path, MultivaluedMap<String, String> queryParams) throws ClientException {
+        MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        TransportResponse response = rawGet(path, queryParams, headers);
+        ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+        try {
+            return new JobIterator(response, MAPPER);
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        }
+    }
+
+    /**
+     * Gets a page of the jobs that match a filter. The filter and the paging
+     * parameters are applied by the server, so only the requested jobs are
+     * transferred.
+     *
+     * @param filter the criteria that the jobs must match, or
+     * <code>null</code> for all jobs.
+     * @param offset the number of matching jobs to skip. Cannot be negative.
+     * @param limit the maximum number of jobs to return. Must be positive.
+     * @return the jobs, in ascending order.
+     * @throws ClientException if the request failed.
+     */
+    public List<Job> getJobs(JobFilter filter, int offset, int limit) throws ClientException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset cannot be negative");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        final String path = "/api/protected/jobs";
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        if (filter != null) {
+            queryParams.add("filter", filter.toQueryParam());
+        }
+        queryParams.add("offset", Integer.toString(offset));
+        queryParams.add("limit", Integer.toString(limit));
+        return get(path, JobList, queryParams);
+    }
+
+    /**
+     * Iterates over the jobs that match a filter, requesting them a page at a
+     * time as by {@link #getJobs(JobFilter, int, int)}. No request is made
+     * until the iterator is first used, and each further page is requested
+     * only when the previous one has been consumed.
+     *
+     * @param filter the criteria that the jobs must match, or
+     * <code>null</code> for all jobs.
+     * @param pageSize the number of jobs to request at a time. Must be
+     * positive.
+     * @return an iterator over the jobs, in ascending order.
+     */
+    public JobPageIterator iterateJobs(JobFilter filter, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        return new JobPageIterator(this, filter, 0, pageSize);
     }
 
     public List<Job> getLatestJob() throws ClientException {
         final String path = "/api/protected/jobs/latest";
-        return doGet(path, JobList);
+        return get(path, JobList);
     }
 
+    /**
+     * Gets user and system phenotypes by key. User phenotypes, which have
+     * keys starting with <code>USER:</code>, are retrieved one request per key
+     * with up to {@link #getMaxParallelRequests()} requests in flight, while
+     * the system phenotypes are retrieved in a single batched request.
+     *
+     * @param inKeys the phenotype keys. May be <code>null</code>.
+     * @param summarized whether to retrieve summarized phenotypes.
+     * @return the phenotypes in the order of their keys. System phenotypes
+     * that were not found are omitted.
+     * @throws ClientException if any of the requests failed. If more than one
+     * key could not be retrieved, an {@link AggregateClientException} with the
+     * failure for each key.
+     */
     public List<Phenotype> getPhenotypes(String[] inKeys, boolean summarized) throws ClientException {
         List<Phenotype> result = new ArrayList<>();
         if (inKeys != null) {
@@ -202,14 +1362,57 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
                     systemPhenotypes.add(key);
                 }
             }
+            FanOut<String, Phenotype> userFetches = null;
             if (!userPhenotypes.isEmpty()) {
-                for (String userPhenotype : userPhenotypes) {
-                    result.add(getUserPhenotype(userPhenotype, summarized));
-                }
+                userFetches = FanOut.start(userPhenotypes,
+                        key -> getUserPhenotype(key, summarized),
+                        this.maxParallelRequests, this.executor);
             }
+            List<SystemPhenotype> systemResults = Collections.emptyList();
+            ClientException systemFailure = null;
             if (!systemPhenotypes.isEmpty()) {
-                result.addAll(getSystemPhenotypes(systemPhenotypes, summarized));
+                try {
+                    systemResults = getSystemPhenotypes(systemPhenotypes, summarized);
+                } catch (ClientException | RuntimeException ex) {
+                    systemFailure = ClientExceptions.toClientException(ex);
+                }
+            }
+            Map<String, ClientException> failures = new LinkedHashMap<>();
+            if (userFetches != null) {
+                userFetches.await();
+                failures.putAll(userFetches.getFailures());
+            }
+            if (systemFailure != null) {
+                if (failures.isEmpty()) {
+                    throw systemFailure;
+                }
+                if (systemFailure instanceof AggregateClientException) {
+                    failures.putAll(((AggregateClientException) systemFailure).getFailures());
+                } else {
+                    for (String key : systemPhenotypes) {
+                        failures.put(key, systemFailure);
+                    }
+                }
             }
+            if (failures.size() == 1) {
+                throw failures.values().iterator().next();
+            } else if (!failures.isEmpty()) {
+                throw new AggregateClientException("Could not retrieve phenotypes", failures);
+            }
+
+            Map<String, SystemPhenotype> systemResultsByKey = byKey(systemResults);
+            int userIndex = 0;
+            for (String key : inKeys) {
+                if (key.startsWith("USER:")) {
+                    result.add(userFetches.getResult(userIndex++));
+                } else {
+                    SystemPhenotype systemResult = systemResultsByKey.get(key);
+                    if (systemResult != null) {
+                        result.add(systemResult);
+                    }
+                }
+            }
+            addUnrequested(systemResults, systemPhenotypes, result);
         }
         return result;
     }
@@ -219,9 +1422,9 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         if (summarized) {
             MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
             queryParams.add("summarize", "true");
-            return doGet(path, PhenotypeList, queryParams);
+            return get(path, PhenotypeList, queryParams);
         } else {
-            return doGet(path, PhenotypeList);
+            return get(path, PhenotypeList);
         }
     }
 
@@ -243,15 +1446,15 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         if (summarized) {
             MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
             queryParams.add("summarize", "true");
-            return doGet(path, Phenotype.class, queryParams);
+            return get(path, Phenotype.class, queryParams);
         } else {
-            return doGet(path, Phenotype.class);
+            return get(path, Phenotype.class);
         }
     }
 
     public URI saveUserPhenotype(Phenotype inPhenotype) throws ClientException {
         final String path = "/api/protected/phenotypes";
-        URI phenotypeURI = doPostCreate(path, inPhenotype);
+        URI phenotypeURI = postCreate(path, inPhenotype);
         return phenotypeURI;
     }
 
@@ -261,7 +1464,7 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
             throw new IllegalArgumentException("inId cannot be null");
         }
         final String path = "/api/protected/phenotypes/" + inId;
-        doPut(path, inPhenotype);
+        put(path, inPhenotype);
     }
 
     public void deleteUserPhenotype(Long inUserId, Long inId) throws
@@ -279,18 +1482,107 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
 		 * string can't be templated because the slashes won't be encoded!
          */
         final String path = "/api/protected/phenotypes/" + inId;
-        doDelete(path);
+        delete(path);
     }
 
     public List<SystemPhenotype> getSystemPhenotypes() throws ClientException {
         final String path = UriBuilder.fromPath("/api/protected/concepts/").build().toString();
-        return doGet(path, SystemPhenotypeList);
+        return get(path, SystemPhenotypeList);
     }
 
+    /**
+     * Gets system phenotypes by key. Duplicate keys are sent only once. If
+     * there are more distinct keys than the
+     * {@link #getSystemPhenotypeBatchSize() batch size}, they are split into
+     * batches that are requested with up to
+     * {@link #getMaxParallelRequests()} requests in flight.
+     *
+     * @param inKeys the keys. Cannot be <code>null</code>.
+     * @param summarize whether to retrieve summarized phenotypes.
+     * @return the phenotypes in the order in which their keys first appear.
+     * Keys that were not found are omitted.
+     * @throws ClientException if a request failed. If more than one batch
+     * failed, an {@link AggregateClientException} with the failure for each
+     * key.
+     */
     public List<SystemPhenotype> getSystemPhenotypes(List<String> inKeys, boolean summarize) throws ClientException {
         if (inKeys == null) {
             throw new IllegalArgumentException("inKeys cannot be null");
         }
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(inKeys));
+        SystemPhenotypeCache cache = this.systemPhenotypeCache;
+        if (cache == null) {
+            return retrieveSystemPhenotypes(keys, summarize);
+        }
+        List<SystemPhenotype> results = new ArrayList<>(keys.size());
+        List<String> misses = new ArrayList<>();
+        for (String key : keys) {
+            SystemPhenotype cached = cache.get(key, summarize);
+            if (cached != null) {
+                results.add(cached);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (!misses.isEmpty()) {
+            results.addAll(retrieveSystemPhenotypes(misses, summarize));
+        }
+        return misses.size() < keys.size() ? inKeyOrder(keys, results) : results;
+    }
+
+    /**
+     * Requests system phenotypes by key without consulting the cache, in
+     * batches if necessary, and stores them in the cache if there is one.
+     *
+     * @param keys distinct keys.
+     * @param summarize whether to retrieve summarized phenotypes.
+     * @return the phenotypes in the order of their keys.
+     */
+    List<SystemPhenotype> retrieveSystemPhenotypes(List<String> keys, boolean summarize) throws ClientException {
+        List<SystemPhenotype> result = doGetSystemPhenotypes(keys, summarize);
+        SystemPhenotypeCache cache = this.systemPhenotypeCache;
+        if (cache != null) {
+            for (SystemPhenotype phenotype : result) {
+                cache.put(phenotype, summarize);
+            }
+        }
+        return result;
+    }
+
+    private List<SystemPhenotype> doGetSystemPhenotypes(List<String> keys, boolean summarize) throws ClientException {
+        int batchSize = this.systemPhenotypeBatchSize;
+        if (keys.size() <= batchSize) {
+            return inKeyOrder(keys, doPostSystemPhenotypes(keys, summarize));
+        }
+
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += batchSize) {
+            batches.add(keys.subList(i, Math.min(i + batchSize, keys.size())));
+        }
+        FanOut<List<String>, List<SystemPhenotype>> batchFetches
+                = FanOut.start(batches, batch -> doPostSystemPhenotypes(batch, summarize),
+                        this.maxParallelRequests, this.executor);
+        batchFetches.await();
+        Map<List<String>, ClientException> batchFailures = batchFetches.getFailures();
+        if (batchFailures.size() == 1) {
+            throw batchFailures.values().iterator().next();
+        } else if (!batchFailures.isEmpty()) {
+            Map<String, ClientException> failures = new LinkedHashMap<>();
+            for (Map.Entry<List<String>, ClientException> me : batchFailures.entrySet()) {
+                for (String key : me.getKey()) {
+                    failures.put(key, me.getValue());
+                }
+            }
+            throw new AggregateClientException("Could not retrieve system phenotypes", failures);
+        }
+        List<SystemPhenotype> results = new ArrayList<>();
+        for (int i = 0, n = batchFetches.size(); i < n; i++) {
+            results.addAll(batchFetches.getResult(i));
+        }
+        return inKeyOrder(keys, results);
+    }
+
+    private List<SystemPhenotype> doPostSystemPhenotypes(List<String> inKeys, boolean summarize) throws ClientException {
         MultivaluedMap<String, String> formParams = new MultivaluedMapImpl();
         for (String key : inKeys) {
             formParams.add("key", key);
@@ -298,11 +1590,57 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         formParams.add("summarize", Boolean.toString(summarize));
         String path = UriBuilder.fromPath("/api/protected/concepts/")
                 .build().toString();
-        return doPost(path, formParams, SystemPhenotypeList);
+        return post(path, formParams, SystemPhenotypeList);
+    }
+
+    /**
+     * Orders phenotypes by the position of their keys in a list of distinct
+     * keys. Phenotypes whose keys are not in the list go at the end.
+     */
+    private static List<SystemPhenotype> inKeyOrder(List<String> keys, List<SystemPhenotype> phenotypes) {
+        Map<String, SystemPhenotype> phenotypesByKey = byKey(phenotypes);
+        List<SystemPhenotype> result = new ArrayList<>(phenotypes.size());
+        for (String key : keys) {
+            SystemPhenotype phenotype = phenotypesByKey.get(key);
+            if (phenotype != null) {
+                result.add(phenotype);
+            }
+        }
+        addUnrequested(phenotypes, keys, result);
+        return result;
+    }
+
+    private static Map<String, SystemPhenotype> byKey(List<SystemPhenotype> phenotypes) {
+        Map<String, SystemPhenotype> result = new HashMap<>();
+        for (SystemPhenotype phenotype : phenotypes) {
+            result.put(phenotype.getKey(), phenotype);
+        }
+        return result;
+    }
+
+    private static void addUnrequested(List<SystemPhenotype> phenotypes,
+            List<String> keys, List<? super SystemPhenotype> result) {
+        Set<String> requested = new HashSet<>(keys);
+        for (SystemPhenotype phenotype : phenotypes) {
+            if (!requested.contains(phenotype.getKey())) {
+                result.add(phenotype);
+            }
+        }
     }
 
     public SystemPhenotype getSystemPhenotype(String inKey, boolean summarize) throws ClientException {
-        List<SystemPhenotype> result = getSystemPhenotypes(Collections.singletonList(inKey), summarize);
+        SystemPhenotypeCache cache = this.systemPhenotypeCache;
+        if (cache != null && inKey != null) {
+            SystemPhenotype cached = cache.get(inKey, summarize);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        SystemPhenotypeLoader loader = this.systemPhenotypeLoader;
+        if (loader != null) {
+            return loader.retrieve(inKey, summarize);
+        }
+        List<SystemPhenotype> result = retrieveSystemPhenotypes(Collections.singletonList(inKey), summarize);
         if (result.isEmpty()) {
             throw new HttpStatusException(Response.Status.NOT_FOUND);
         } else {
@@ -397,35 +1735,35 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
     }*/
     public List<SourceConfig> getSourceConfigs() throws ClientException {
         String path = "/api/protected/sourceconfigs";
-        return doGet(path, SourceConfigList);
+        return doConditionalGet(path, SourceConfigList);
     }
 
     public SourceConfig getSourceConfig(String sourceConfigId) throws ClientException {
         String path = UriBuilder.fromPath("/api/protected/sourceconfigs/")
                 .segment(sourceConfigId)
                 .build().toString();
-        return doGet(path, SourceConfig.class);
+        return get(path, SourceConfig.class);
     }
 
     public List<SourceConfigParams> getSourceConfigParams() throws ClientException {
         String path = "/api/protected/sourceconfigs/parameters/list";
-        return doGet(path, SourceConfigParamsList);
+        return doConditionalGet(path, SourceConfigParamsList);
     }
 
     public Long createDestination(Destination destination) throws ClientException {
         String path = "/api/protected/destinations";
-        URI destURI = doPostCreate(path, destination);
+        URI destURI = postCreate(path, destination);
         return extractId(destURI);
     }
 
     public void updateDestination(Destination destination) throws ClientException {
         String path = "/api/protected/destinations";
-        doPut(path, destination);
+        put(path, destination);
     }
 
     public List<Destination> getDestinations() throws ClientException {
         String path = "/api/protected/destinations";
-        return doGet(path, DestinationList);
+        return doConditionalGet(path, DestinationList);
     }
 
     public List<CohortDestination> getCohortDestinations() throws
@@ -433,7 +1771,7 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         final String path = "/api/protected/destinations/";
         MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
         queryParams.add("type", DestinationType.COHORT.name());
-        return doGet(path, CohortDestinationListType, queryParams);
+        return get(path, CohortDestinationListType, queryParams);
     }
 
     public List<I2B2Destination> getI2B2Destinations() throws
@@ -441,21 +1779,21 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         final String path = "/api/protected/destinations/";
         MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
         queryParams.add("type", DestinationType.I2B2.name());
-        return doGet(path, I2B2DestinationListType, queryParams);
+        return get(path, I2B2DestinationListType, queryParams);
     }
 
     public Destination getDestination(String destinationId) throws ClientException {
         String path = UriBuilder.fromPath("/api/protected/destinations/")
                 .segment(destinationId)
                 .build().toString();
-        return doGet(path, Destination.class);
+        return get(path, Destination.class);
     }
 
     public void deleteDestination(Long id, String destinationId) throws ClientException {
         String path = UriBuilder.fromPath("/api/protected/destinations/")
                 .segment(destinationId)
                 .build().toString();
-        doDelete(path);
+        delete(path);
     }
 
     //Search Functionality
@@ -463,7 +1801,7 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         final String path = UriBuilder.fromPath("/api/protected/concepts/search/")
                 .segment(searchKey)
                 .build().toString();
-        return doGet(path, SystemPhenotypeSearchResultsList);
+        return get(path, SystemPhenotypeSearchResultsList);
     }
 
     //Search Functionality
@@ -471,14 +1809,604 @@ public class EurekaClient extends AuthorizingEurekaClinicalClient {
         final String path = UriBuilder.fromPath("/api/protected/concepts/propsearch/")
                 .segment(searchKey)
                 .build().toString();
-        return doGet(path, SystemPhenotypeList);
+        SystemPhenotypeCache cache = this.systemPhenotypeCache;
+        if (cache == null) {
+            return get(path, SystemPhenotypeList);
+        }
+        List<SystemPhenotype> result = cache.getSearchResults(searchKey);
+        if (result == null) {
+            result = get(path, SystemPhenotypeList);
+            // The search takes no summarize parameter, so its results are
+            // cached as summarized, which never satisfies a full lookup.
+            cache.putSearchResults(searchKey, result, true);
+        }
+        return result;
     }
 
     public InputStream getOutput(String destinationId) throws ClientException {
-        String path = UriBuilder.fromPath("/api/protected/output/")
+        TransportResponse response = getOutputResponse(destinationId, null, null);
+        ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+        return response.getEntityInputStream();
+    }
+
+    /**
+     * Downloads a destination's output to a file. The response is copied
+     * from the network channel into the file channel with
+     * {@link java.nio.channels.FileChannel#transferFrom}, so no more than a
+     * small, fixed-size buffer is held at a time regardless of the output's
+     * size. If the server reports the output's length, the file is extended
+     * to that length before copying starts, and the number of bytes received
+     * is checked against it.
+     *
+     * @param destinationId the destination's unique name.
+     * @param target the file to write. It is created if it does not exist
+     * and replaced if it does.
+     * @return the download's size and throughput.
+     * @throws ClientException if the request failed.
+     * @throws IOException if writing the file failed or the download ended
+     * before the reported length was received.
+     */
+    public TransferStatistics downloadOutput(String destinationId, Path target) throws ClientException, IOException {
+        if (target == null) {
+            throw new IllegalArgumentException("target cannot be null");
+        }
+        long start = System.nanoTime();
+        TransportResponse response = getOutputResponse(destinationId, null, null);
+        ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+        long bytes = OutputDownload.copy(response, target, destinationId);
+        return new TransferStatistics(bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Downloads a destination's output to a file so that the download can
+     * survive dropped connections. The output is requested with HTTP range
+     * requests, split into up to <code>parallelRanges</code> ranges that are
+     * downloaded concurrently and written in place at their positions in the
+     * file. If there is a transfer {@link #setBulkhead bulkhead}, no more
+     * ranges are downloaded at once than it allows. Each range's progress is recorded in a checkpoint file named
+     * after the target with a <code>.checkpoint</code> suffix. A range whose
+     * connection drops is requested again from where it stopped. If this
+     * method fails, calling it again with the same arguments resumes from the
+     * checkpoint, provided the output has not changed. When the download
+     * completes, the file's length is verified and the checkpoint file is
+     * deleted. If the server does not support range requests, the output is
+     * downloaded in one piece as by {@link #downloadOutput(String, Path)}.
+     *
+     * @param destinationId the destination's unique name.
+     * @param target the file to write.
+     * @param parallelRanges the maximum number of ranges. Must be positive.
+     * Use 1 for a sequential download that can still be resumed.
+     * @return the number of bytes downloaded by this call and its throughput.
+     * @throws ClientException if a request failed.
+     * @throws IOException if writing the file failed, a range's connection
+     * dropped too many times, or the output changed during the download.
+     */
+    public TransferStatistics downloadOutputResumable(String destinationId, Path target, int parallelRanges)
+            throws ClientException, IOException {
+        if (target == null) {
+            throw new IllegalArgumentException("target cannot be null");
+        }
+        if (parallelRanges < 1) {
+            throw new IllegalArgumentException("parallelRanges must be positive");
+        }
+        return new OutputDownload(this, destinationId, target, parallelRanges).run();
+    }
+
+    /**
+     * Requests a destination's output without checking the response status.
+     *
+     * @param destinationId the destination's unique name.
+     * @param range the value of the <code>Range</code> header, or
+     * <code>null</code> to request the whole output.
+     * @param ifRange the value of the <code>If-Range</code> header, or
+     * <code>null</code>.
+     * @return the response, which the caller must close.
+     */
+    TransportResponse getOutputResponse(String destinationId, String range, String ifRange) throws ClientException {
+        MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_OCTET_STREAM);
+        if (range != null) {
+            headers.add("Range", range);
+            if (ifRange != null) {
+                headers.add("If-Range", ifRange);
+            }
+        }
+        return rawGet(outputPath(destinationId), headers);
+    }
+
+    /**
+     * Makes a GET request and returns the response without checking its
+     * status, for callers that need the response's headers or handle statuses
+     * other than OK. Unless the request is for a range, it asks for a
+     * gzip-compressed response, and a compressed response is decompressed as
+     * it is read, with its <code>Content-Encoding</code> and
+     * <code>Content-Length</code> headers removed.
+     *
+     * @param path the path of the resource.
+     * @param headers request headers, or <code>null</code>.
+     * @return the response, which the caller must close.
+     */
+    TransportResponse rawGet(String path, MultivaluedMap<String, String> headers) throws ClientException {
+        return rawGet(path, null, headers);
+    }
+
+    /**
+     * Makes a GET request with query parameters, as by
+     * {@link #rawGet(String, MultivaluedMap)}.
+     *
+     * @param path the path of the resource.
+     * @param queryParams query parameters, or <code>null</code>.
+     * @param headers request headers, or <code>null</code>.
+     * @return the response, which the caller must close.
+     */
+    TransportResponse rawGet(String path, MultivaluedMap<String, String> queryParams,
+            MultivaluedMap<String, String> headers) throws ClientException {
+        return exchange(HttpMethod.GET, path, queryParams, headers, null);
+    }
+
+    /**
+     * Makes a POST request with the given body and returns the response
+     * without checking its status. If
+     * {@link #isRequestCompressionEnabled() request compression} is enabled,
+     * the body is compressed as it is sent, and any
+     * <code>Content-Length</code> header is dropped. Responses are handled as
+     * by {@link #rawGet(String, MultivaluedMap)}.
+     *
+     * @param path the path of the resource.
+     * @param entity the request body, or <code>null</code>.
+     * @param headers request headers, including the content type, or
+     * <code>null</code>.
+     * @return the response, which the caller must close.
+     */
+    TransportResponse rawPost(String path, InputStream entity, MultivaluedMap<String, String> headers) throws ClientException {
+        return exchange(HttpMethod.POST, path, null, headers, entity);
+    }
+
+    /**
+     * Makes a request and returns the response without checking its status,
+     * for callers that read the response themselves, such as uploads and
+     * output downloads. Unless the
+     * request is for a range, it asks for a gzip-compressed response, which
+     * is decompressed as it is read. If
+     * {@link #isRequestCompressionEnabled() request compression} is enabled,
+     * the body is compressed as it is sent. The request is reported to the
+     * client's {@link #getMetrics() metrics} when the response is closed.
+     * GET requests are retried according to the
+     * {@link #setRetryPolicy retry policy}. They are not hedged, since their
+     * responses are streamed to the caller.
+     *
+     * @param method the HTTP method.
+     * @param path the path of the resource.
+     * @param queryParams query parameters, or <code>null</code>.
+     * @param headers request headers, or <code>null</code>.
+     * @param entity the request body, or <code>null</code>.
+     * @return the response, which the caller must close.
+     */
+    private TransportResponse exchange(String method, String path, MultivaluedMap<String, String> queryParams,
+            MultivaluedMap<String, String> headers, InputStream entity) throws ClientException {
+        return call(method, path, HttpMethod.GET.equals(method), false,
+                () -> attempt(method, path, 0,
+                        (routeClass, meter) -> exchange(routeClass, meter, method, path, queryParams, headers, entity)));
+    }
+
+    /**
+     * Makes a request through the endpoint's circuit breaker. If it is
+     * idempotent, it is retried when it fails transiently, and it may be
+     * hedged when slow. A request fails transiently if no response was
+     * received or if its status is one that {@link RetryPolicy} retries.
+     *
+     * @param method the HTTP method.
+     * @param path the path of the resource.
+     * @param idempotent whether the request may be retried.
+     * @param hedge whether the request may be hedged. Only requests whose
+     * responses are read in full before the call returns are hedged, so
+     * that streamed responses such as output downloads and job iteration
+     * are never requested twice.
+     * @param attempt makes one attempt at the request.
+     * @return the last attempt's result. If it is a response, the caller
+     * must close it.
+     * @throws CircuitOpenException if the endpoint's circuit breaker is open.
+     */
+    private <T> T call(String method, String path, boolean idempotent, boolean hedge, Attempt<T> attempt)
+            throws ClientException {
+        String route = Routes.template(path);
+        CircuitBreaker breaker = circuitBreaker(method, route);
+        RetryPolicy policy = idempotent ? this.retryPolicy : null;
+        if (policy != null) {
+            policy.requestStarted();
+        }
+        for (int attempts = 1;; attempts++) {
+            CircuitBreaker.Permit permit = breaker != null ? breaker.tryAcquire() : null;
+            if (breaker != null && permit == null) {
+                throw new CircuitOpenException(method, route);
+            }
+            T result = null;
+            RuntimeException runtimeFailure = null;
+            ClientException failure = null;
+            int status = 0;
+            boolean sent = true;
+            try {
+                result = idempotent && hedge ? hedge(method, route, attempt) : attempt.send();
+                status = result instanceof TransportResponse
+                        ? ((TransportResponse) result).getStatus() : ClientResponse.Status.OK.getStatusCode();
+            } catch (ConcurrencyLimitException | BulkheadFullException ex) {
+                sent = false;
+                throw ex;
+            } catch (ClientException ex) {
+                failure = ex;
+                status = responseStatus(ex);
+            } catch (ClientHandlerException ex) {
+                runtimeFailure = ex;
+            } finally {
+                if (permit != null) {
+                    if (sent) {
+                        breaker.record(permit, status > 0 && status < 500);
+                    } else {
+                        breaker.cancel(permit);
+                    }
+                }
+            }
+            boolean transientFailure = status == 0 || RetryPolicy.isRetryableStatus(status);
+            if (!transientFailure || policy == null || attempts >= policy.getMaxAttempts() || !policy.tryRetry()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (runtimeFailure != null) {
+                    throw runtimeFailure;
+                }
+                return result;
+            }
+            if (result instanceof TransportResponse) {
+                ((TransportResponse) result).close();
+            }
+            LOGGER.debug("Retrying {} {} after attempt {}", method, path, attempts);
+            try {
+                TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(attempts));
+            } catch (InterruptedException ex) {
+                throw ClientExceptions.interrupted(ex);
+            }
+        }
+    }
+
+    /**
+     * Gets the HTTP status of the response that caused a request to fail.
+     *
+     * @return the status, or 0 if the request failed without a response,
+     * in which case the exception has a cause.
+     */
+    private static int responseStatus(ClientException ex) {
+        ClientResponse.Status status = ex.getResponseStatus();
+        if (status == null || ex.getCause() != null) {
+            return 0;
+        }
+        return status.getStatusCode();
+    }
+
+    /**
+     * Makes an attempt at an idempotent request, hedging it according to the
+     * {@link #setHedgingPolicy hedging policy} if it is on a
+     * {@link RouteClass#METADATA metadata} route.
+     */
+    private <T> T hedge(String method, String route, Attempt<T> attempt) throws ClientException {
+        HedgingPolicy policy = this.hedgingPolicy;
+        if (policy == null || Routes.routeClass(route) != RouteClass.METADATA) {
+            return attempt.send();
+        }
+        policy.requestStarted();
+        long delayNanos = policy.delayNanos(this.metrics.getRoute(method, route));
+        if (delayNanos < 0) {
+            return attempt.send();
+        }
+        return new HedgedRequest<>(attempt, policy, this.executor).send(delayNanos);
+    }
+
+    private CircuitBreaker circuitBreaker(String method, String route) {
+        CircuitBreakerPolicy policy = this.circuitBreakerPolicy;
+        if (policy == null) {
+            return null;
+        }
+        return this.circuitBreakers.computeIfAbsent(method + " " + route,
+                k -> new CircuitBreaker(method, route, policy, this::getMetricsListener));
+    }
+
+    /**
+     * Makes one attempt at a request within the route's
+     * {@link #setBulkhead bulkhead} and the
+     * {@link #setConcurrencyLimiter concurrency limit}, and reports it to the
+     * client's {@link #getMetrics() metrics}. If the result is a response,
+     * it is returned without checking its status and is reported when it is
+     * closed. Otherwise the request is reported when it returns, with the
+     * status of the response that caused it to fail, or 200 if it
+     * succeeded.
+     *
+     * @param keyCount the number of phenotype keys in a batched lookup, which
+     * is reported in the request's Flight Recorder event.
+     * @param exchange sends the request.
+     */
+    private <T> T attempt(String method, String path, int keyCount, Exchange<T> exchange) throws ClientException {
+        String route = Routes.template(path);
+        RouteClass routeClass = Routes.routeClass(route);
+        Bulkhead bulkhead = getBulkhead(routeClass);
+        if (bulkhead != null) {
+            bulkhead.acquire(routeClass);
+        }
+        AdaptiveConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter != null) {
+            try {
+                limiter.acquire();
+            } catch (ClientException | RuntimeException ex) {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+                throw ex;
+            }
+        }
+        RequestMeter meter = new RequestMeter(method, route, this.metrics, this.metricsListener);
+        meter.setKeyCount(keyCount);
+        long start = System.nanoTime();
+        T result;
+        int status;
+        try {
+            result = exchange.send(routeClass, meter);
+            status = result instanceof TransportResponse
+                    ? ((TransportResponse) result).getStatus() : ClientResponse.Status.OK.getStatusCode();
+        } catch (ClientException | RuntimeException ex) {
+            status = ex instanceof ClientException ? responseStatus((ClientException) ex) : 0;
+            meter.completed(status);
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - start, status == 429 || status == 503);
+            }
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            throw ex;
+        }
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - start, status == 429 || status == 503);
+        }
+        if (!(result instanceof TransportResponse)) {
+            meter.completed(status);
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            return result;
+        }
+        TransportResponse response = meter.responseReceived((TransportResponse) result);
+        if (bulkhead != null) {
+            response = bulkhead.releaseOnClose(response);
+        }
+        @SuppressWarnings("unchecked")
+        T decoded = (T) decodeResponse(response);
+        return decoded;
+    }
+
+    /**
+     * Sends a request whose response the client reads itself. The headers
+     * are copied rather than modified, so that attempts may be made
+     * concurrently. Unless the request is for a range, it asks for a
+     * gzip-compressed response. If
+     * {@link #isRequestCompressionEnabled() request compression} is enabled,
+     * the body is compressed as it is sent.
+     */
+    private TransportResponse exchange(RouteClass routeClass, RequestMeter meter, String method, String path,
+            MultivaluedMap<String, String> queryParams, MultivaluedMap<String, String> headers,
+            InputStream entity) throws ClientException {
+        headers = copyHeaders(headers);
+        if (!headers.containsKey("Range")) {
+            acceptGzip(headers);
+        }
+        if (entity != null && this.requestCompressionEnabled) {
+            entity = new ParallelGzipInputStream(entity, ClientExecutors.compressionExecutor(),
+                    ClientExecutors.COMPRESSION_THREADS);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        if (entity != null) {
+            entity = meter.countRequest(entity);
+        }
+        return send(routeClass, method, path, queryParams, headers, entity);
+    }
+
+    /**
+     * Sends a request with the {@link #setTransferTransport transfer
+     * transport} if it is a transfer and there is one, otherwise with the
+     * {@link #setTransport transport}, or with the inherited Jersey client if
+     * there is none. Requests sent with a transport are decorated with the
+     * {@link #setRequestDecorator request decorator}.
+     */
+    private TransportResponse send(RouteClass routeClass, String method, String path,
+            MultivaluedMap<String, String> queryParams, MultivaluedMap<String, String> headers,
+            InputStream entity) throws ClientException {
+        EurekaTransport t = routeClass == RouteClass.TRANSFER ? this.transferTransport : null;
+        if (t == null) {
+            t = this.transport;
+        }
+        if (t != null) {
+            return execute(t, this.requestDecorator,
+                    new TransportRequest(method, requestUri(path, queryParams), headers, entity));
+        }
+        switch (method) {
+            case HttpMethod.GET:
+                return fromClientResponse(doGetForProxy(path, queryParams, headers));
+            case HttpMethod.POST:
+                return fromClientResponse(doPostForProxy(path, entity, queryParams, headers));
+            case HttpMethod.PUT:
+                return fromClientResponse(doPutForProxy(path, entity, queryParams, headers));
+            case HttpMethod.DELETE:
+                return fromClientResponse(doDeleteForProxy(path, queryParams, headers));
+            default:
+                throw new IllegalArgumentException("Unsupported method " + method);
+        }
+    }
+
+    private static TransportResponse fromClientResponse(ClientResponse response) {
+        return new TransportResponse(response.getStatus(), response.getHeaders(),
+                response.getEntityInputStream());
+    }
+
+    private static TransportResponse execute(EurekaTransport transport, RequestDecorator decorator,
+            TransportRequest request) throws ClientException {
+        try {
+            if (decorator != null) {
+                decorator.decorate(request);
+            }
+            return transport.execute(request);
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        }
+    }
+
+    /**
+     * Resolves a path and query parameters against the service's URL.
+     */
+    private URI requestUri(String path, MultivaluedMap<String, String> queryParams) {
+        StringBuilder uri = new StringBuilder(getResourceUrl().toString());
+        if (uri.length() > 0 && uri.charAt(uri.length() - 1) == '/' && path.startsWith("/")) {
+            uri.setLength(uri.length() - 1);
+        }
+        uri.append(path);
+        if (queryParams != null && !queryParams.isEmpty()) {
+            uri.append('?').append(formEncode(queryParams));
+        }
+        return URI.create(uri.toString());
+    }
+
+    /**
+     * Encodes parameters as <code>application/x-www-form-urlencoded</code>.
+     */
+    private static String formEncode(MultivaluedMap<String, String> params) {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, List<String>> me : params.entrySet()) {
+            for (String value : me.getValue()) {
+                if (result.length() > 0) {
+                    result.append('&');
+                }
+                result.append(urlEncode(me.getKey())).append('=').append(urlEncode(value));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String urlEncode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static MultivaluedMap<String, String> copyHeaders(MultivaluedMap<String, String> headers) {
+        MultivaluedMap<String, String> result = new MultivaluedMapImpl();
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> me : headers.entrySet()) {
+                result.put(me.getKey(), new ArrayList<>(me.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private static void acceptGzip(MultivaluedMap<String, String> headers) {
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.add(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+    }
+
+    /**
+     * Replaces a gzip-compressed response's entity with a stream that
+     * decompresses it, unless it has already been decompressed.
+     */
+    private static TransportResponse decodeResponse(TransportResponse response) throws ClientException {
+        MultivaluedMap<String, String> headers = response.getHeaders();
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding == null || !GZIP.equalsIgnoreCase(contentEncoding.trim())
+                || response.getStatus() == ClientResponse.Status.NO_CONTENT.getStatusCode()
+                || response.getStatus() == ClientResponse.Status.NOT_MODIFIED.getStatusCode()) {
+            return response;
+        }
+        InputStream decoded;
+        try {
+            decoded = new GZIPInputStream(response.getEntityInputStream());
+        } catch (IOException ex) {
+            response.close();
+            throw ClientExceptions.toClientException(ex);
+        }
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return new TransportResponse(response.getStatus(), headers, decoded);
+    }
+
+    private static String uploadPath(String sourceId, String fileTypeId) {
+        return UriBuilder
+                .fromPath("/api/protected/file/upload/")
+                .segment(sourceId)
+                .segment(fileTypeId)
+                .build().toString();
+    }
+
+    private static String outputPath(String destinationId) {
+        return UriBuilder.fromPath("/api/protected/output/")
                 .segment(destinationId)
                 .build().toString();
-        return doGet(path, InputStream.class);
+    }
+
+    /**
+     * Gets a list, making the request conditional if
+     * {@link #isConditionalGetEnabled() conditional requests are enabled}.
+     */
+    private <T> List<T> doConditionalGet(String path, GenericType<List<T>> genericType) throws ClientException {
+        if (!this.conditionalGetEnabled) {
+            return get(path, genericType);
+        }
+        ConditionalGetCache.Entry previous = this.conditionalGetCache.get(path);
+        MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        if (previous != null) {
+            if (previous.getEntityTag() != null) {
+                headers.add(HttpHeaders.IF_NONE_MATCH, previous.getEntityTag());
+            }
+            if (previous.getLastModified() != null) {
+                headers.add(HttpHeaders.IF_MODIFIED_SINCE, previous.getLastModified());
+            }
+        }
+        TransportResponse response = rawGet(path, headers);
+        JavaType type = MAPPER.getTypeFactory().constructType(genericType.getType());
+        byte[] body;
+        if (previous != null && response.getStatus() == ClientResponse.Status.NOT_MODIFIED.getStatusCode()) {
+            response.close();
+            body = previous.getBody();
+        } else {
+            ClientExceptions.ensureStatus(response, ClientResponse.Status.OK);
+            MultivaluedMap<String, String> responseHeaders = response.getHeaders();
+            body = readBody(response);
+            this.conditionalGetCache.put(path,
+                    responseHeaders.getFirst(HttpHeaders.ETAG),
+                    responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED),
+                    body);
+        }
+        try {
+            return MAPPER.readValue(new ByteArrayInputStream(body), type);
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        }
+    }
+
+    /**
+     * Reads a response body into memory and closes the response.
+     */
+    private static byte[] readBody(TransportResponse response) throws ClientException {
+        try (InputStream in = response.getEntityInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw ClientExceptions.toClientException(ex);
+        } finally {
+            response.close();
+        }
     }
 
 }
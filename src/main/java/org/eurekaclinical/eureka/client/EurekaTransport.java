@@ -0,0 +1,50 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends HTTP requests on behalf of {@link EurekaClient}. By default, the
+ * client sends requests with the Jersey client that it inherits, over which
+ * callers have no control. Setting a transport with
+ * {@link EurekaClient#setTransport(EurekaTransport)} lets the caller decide
+ * how connections are made and reused; {@link PooledHttpTransport} is an
+ * implementation with a configurable pool of keep-alive connections.
+ *
+ * Implementations must be thread-safe. They must send the request's headers
+ * as given, and must not add an <code>Accept-Encoding</code> header or
+ * decompress responses, which the client does itself. A response status
+ * other than 2xx is not an error: it is returned like any other.
+ */
+public interface EurekaTransport extends Closeable {
+
+    /**
+     * Sends a request and returns the response once its headers have been
+     * received. The request entity, if any, is read until it ends.
+     *
+     * @param request the request. Never <code>null</code>.
+     * @return the response, which the caller will close.
+     * @throws IOException if the request could not be sent or the response
+     * could not be received.
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+}
@@ -0,0 +1,178 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Makes one request per item of a list, with at most a fixed number of
+ * requests in flight at a time. Requests run on an executor so that the
+ * calling thread can do other work, such as a batched request, before
+ * waiting with {@link #await()}. Before it waits, the calling thread makes
+ * any requests that no executor thread has started, so a fan-out finishes
+ * even when every thread of a bounded executor is busy, for example with
+ * callers that are themselves waiting on fan-outs. Results and failures are
+ * kept by position in the list, so they can be reassembled in the caller's
+ * order. A failed request does not stop the others.
+ *
+ * @param <K> the item type.
+ * @param <V> the result type.
+ */
+final class FanOut<K, V> {
+
+    /**
+     * Makes the request for one item.
+     *
+     * @param <K> the item type.
+     * @param <V> the result type.
+     */
+    interface Fetcher<K, V> {
+
+        V fetch(K item) throws ClientException;
+    }
+
+    private final List<K> items;
+    private final Fetcher<K, V> fetcher;
+    private final Object[] results;
+    private final ClientException[] failures;
+    private final AtomicInteger next;
+    private final CountDownLatch done;
+    private final Semaphore workers;
+
+    private FanOut(List<K> items, Fetcher<K, V> fetcher, int parallelism) {
+        this.items = new ArrayList<>(items);
+        this.fetcher = fetcher;
+        this.results = new Object[this.items.size()];
+        this.failures = new ClientException[this.items.size()];
+        this.next = new AtomicInteger();
+        this.done = new CountDownLatch(this.items.size());
+        this.workers = new Semaphore(parallelism);
+    }
+
+    /**
+     * Starts making requests for the given items.
+     *
+     * @param <K> the item type.
+     * @param <V> the result type.
+     * @param items the items. Cannot be <code>null</code>.
+     * @param fetcher makes the request for an item. Cannot be
+     * <code>null</code>.
+     * @param parallelism the maximum number of requests in flight. Must be
+     * positive.
+     * @param executor the executor on which to make the requests. If it
+     * rejects a task, that task's share of the requests is made on the
+     * calling thread.
+     * @return the running fan-out.
+     */
+    static <K, V> FanOut<K, V> start(List<K> items, Fetcher<K, V> fetcher,
+            int parallelism, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        FanOut<K, V> fanOut = new FanOut<>(items, fetcher, parallelism);
+        int workers = Math.min(parallelism, fanOut.items.size());
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(fanOut::work);
+            } catch (RejectedExecutionException ex) {
+                fanOut.work();
+            }
+        }
+        return fanOut;
+    }
+
+    /**
+     * Makes any requests that have not been started, then waits for all of
+     * the requests to finish.
+     *
+     * @throws ClientException if the calling thread is interrupted while
+     * waiting.
+     */
+    void await() throws ClientException {
+        work();
+        try {
+            this.done.await();
+        } catch (InterruptedException ex) {
+            throw ClientExceptions.interrupted(ex);
+        }
+    }
+
+    int size() {
+        return this.items.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    V getResult(int index) {
+        return (V) this.results[index];
+    }
+
+    ClientException getFailure(int index) {
+        return this.failures[index];
+    }
+
+    /**
+     * Gets the failed requests. Call after {@link #await()}.
+     *
+     * @return the failures by item, in list order, or an empty map if all
+     * requests succeeded.
+     */
+    Map<K, ClientException> getFailures() {
+        Map<K, ClientException> result = new LinkedHashMap<>();
+        for (int i = 0; i < this.failures.length; i++) {
+            if (this.failures[i] != null) {
+                result.put(this.items.get(i), this.failures[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes requests until there are none left, unless the maximum number of
+     * threads are already making them. Those threads will make the rest.
+     */
+    private void work() {
+        if (!this.workers.tryAcquire()) {
+            return;
+        }
+        try {
+            int i;
+            while ((i = this.next.getAndIncrement()) < this.results.length) {
+                try {
+                    this.results[i] = this.fetcher.fetch(this.items.get(i));
+                } catch (ClientException | RuntimeException ex) {
+                    this.failures[i] = ClientExceptions.toClientException(ex);
+                } finally {
+                    this.done.countDown();
+                }
+            }
+        } finally {
+            this.workers.release();
+        }
+    }
+}
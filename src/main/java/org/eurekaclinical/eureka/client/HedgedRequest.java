@@ -0,0 +1,193 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Sends a request and, if it has no response after a delay, a duplicate of
+ * it, as described in {@link HedgingPolicy}. Both are sent on an executor
+ * while the calling thread waits. If no executor thread has started the
+ * first attempt by the end of the delay, the calling thread sends it itself
+ * and nothing is hedged, so a busy bounded executor cannot leave the caller
+ * waiting. The first result wins; if the other
+ * attempt's result is a response, it is closed as soon as it arrives, since
+ * a request that is already being sent cannot be aborted. The call fails
+ * only if every attempt that was sent fails.
+ *
+ * @param <T> the result type.
+ */
+final class HedgedRequest<T> {
+
+    private final EurekaClient.Attempt<T> attempt;
+    private final HedgingPolicy policy;
+    private final Executor executor;
+    private final CompletableFuture<T> result;
+    private final AtomicBoolean firstStarted;
+    private int outstanding;
+    private boolean done;
+
+    /**
+     * Creates a hedged request.
+     *
+     * @param attempt makes one attempt at the request. Must be safe to call
+     * concurrently.
+     * @param policy the policy whose budget and counters to use.
+     * @param executor the executor on which to send the attempts.
+     */
+    HedgedRequest(EurekaClient.Attempt<T> attempt, HedgingPolicy policy, Executor executor) {
+        this.attempt = attempt;
+        this.policy = policy;
+        this.executor = executor;
+        this.result = new CompletableFuture<>();
+        this.firstStarted = new AtomicBoolean();
+    }
+
+    /**
+     * Sends the request, and a duplicate if it has no response after the
+     * delay and the policy's budget allows.
+     *
+     * @param delayNanos the delay in nanoseconds.
+     * @return the first result. If it is a response, the caller must close
+     * it.
+     */
+    T send(long delayNanos) throws ClientException {
+        if (!launch(false)) {
+            return this.attempt.send();
+        }
+        try {
+            try {
+                return this.result.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (this.firstStarted.compareAndSet(false, true)) {
+                    run(false);
+                } else if (this.policy.tryHedge()) {
+                    launch(true);
+                }
+            }
+            return this.result.get();
+        } catch (InterruptedException ex) {
+            abandon();
+            throw ClientExceptions.interrupted(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw ClientExceptions.toClientException(cause);
+        }
+    }
+
+    /**
+     * Queues an attempt on the executor.
+     *
+     * @param hedge whether the attempt is the duplicate.
+     * @return whether the attempt was queued.
+     */
+    private boolean launch(boolean hedge) {
+        synchronized (this) {
+            if (this.done) {
+                return false;
+            }
+        }
+        try {
+            this.executor.execute(() -> {
+                if (hedge || this.firstStarted.compareAndSet(false, true)) {
+                    run(hedge);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Makes an attempt. Only attempts that have started are waited for, so
+     * if the first attempt fails before a queued duplicate starts, the call
+     * fails rather than waiting for a thread.
+     */
+    private void run(boolean hedge) {
+        synchronized (this) {
+            if (this.done) {
+                return;
+            }
+            this.outstanding++;
+        }
+        T response;
+        try {
+            response = this.attempt.send();
+        } catch (ClientException | RuntimeException ex) {
+            synchronized (this) {
+                if (--this.outstanding == 0 && !this.done) {
+                    this.done = true;
+                    this.result.completeExceptionally(ex);
+                }
+            }
+            return;
+        }
+        boolean won;
+        synchronized (this) {
+            this.outstanding--;
+            won = !this.done;
+            if (won) {
+                this.done = true;
+                this.result.complete(response);
+            }
+        }
+        if (!won) {
+            close(response);
+        } else if (hedge) {
+            this.policy.hedgeWon();
+        }
+    }
+
+    /**
+     * Closes any response that arrives after the caller has stopped waiting.
+     */
+    private void abandon() {
+        T response = null;
+        synchronized (this) {
+            this.done = true;
+            if (this.result.isDone() && !this.result.isCompletedExceptionally()) {
+                response = this.result.getNow(null);
+            }
+        }
+        close(response);
+    }
+
+    private static void close(Object result) {
+        if (result instanceof Closeable) {
+            try {
+                ((Closeable) result).close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * When {@link EurekaClient} hedges idempotent requests: if a GET request or
+ * system phenotype lookup for metadata has no response after a delay, a
+ * duplicate is sent, the first response to arrive is used, and the other is
+ * discarded. Uploads, output downloads and streamed job listings are never
+ * hedged.
+ * This trims the tail latency caused by the occasional slow request at the
+ * cost of some extra load.
+ *
+ * The delay is either fixed or a percentile of the route's observed
+ * response times, as recorded in {@link EurekaClient#getMetrics()}. Routes
+ * with fewer than {@link #MIN_SAMPLES} observed responses are not hedged
+ * under a percentile delay. Hedges are limited to a fraction of the
+ * requests: each request adds that fraction of a hedge to a budget, each
+ * hedge spends a whole one, and the budget holds at most
+ * {@link #BUDGET_CAPACITY} hedges. A policy's budget is shared by every
+ * client that uses it.
+ */
+public final class HedgingPolicy {
+
+    public static final double DEFAULT_DELAY_PERCENTILE = 95;
+
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 10;
+
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+
+    /**
+     * How many responses must have been observed on a route before it is
+     * hedged under a percentile delay.
+     */
+    public static final int MIN_SAMPLES = 100;
+
+    /**
+     * The most hedges that the budget can hold.
+     */
+    public static final int BUDGET_CAPACITY = 10;
+
+    /**
+     * The budget is kept in thousandths of a hedge.
+     */
+    private static final long HEDGE_COST = 1000;
+
+    private final double delayPercentile;
+    private final long delayNanos;
+    private final double maxHedgeRatio;
+    private final long deposit;
+    private final AtomicLong budget;
+    private final LongAdder hedges;
+    private final LongAdder hedgeWins;
+
+    /**
+     * Creates a policy that hedges after the route's
+     * {@link #DEFAULT_DELAY_PERCENTILE}th percentile response time, but no
+     * sooner than {@link #DEFAULT_MIN_DELAY_MILLIS} milliseconds, for up to
+     * {@link #DEFAULT_MAX_HEDGE_RATIO} of requests.
+     */
+    public HedgingPolicy() {
+        this(DEFAULT_DELAY_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, TimeUnit.MILLISECONDS,
+                DEFAULT_MAX_HEDGE_RATIO);
+    }
+
+    /**
+     * Creates a policy that hedges after a percentile of the route's response
+     * times.
+     *
+     * @param delayPercentile the percentile, greater than 0 and at most 100.
+     * @param minDelay the shortest delay. Must be positive.
+     * @param unit the minimum delay's unit. Cannot be <code>null</code>.
+     * @param maxHedgeRatio the largest fraction of requests to hedge,
+     * between 0 and 1.
+     */
+    public HedgingPolicy(double delayPercentile, long minDelay, TimeUnit unit, double maxHedgeRatio) {
+        this(delayPercentile, minDelay, unit, maxHedgeRatio, true);
+    }
+
+    /**
+     * Creates a policy that hedges after a fixed delay.
+     *
+     * @param delay the delay. Must be positive.
+     * @param unit the delay's unit. Cannot be <code>null</code>.
+     * @param maxHedgeRatio the largest fraction of requests to hedge,
+     * between 0 and 1.
+     */
+    public HedgingPolicy(long delay, TimeUnit unit, double maxHedgeRatio) {
+        this(Double.NaN, delay, unit, maxHedgeRatio, false);
+    }
+
+    private HedgingPolicy(double delayPercentile, long delay, TimeUnit unit, double maxHedgeRatio,
+            boolean percentile) {
+        if (percentile && !(delayPercentile > 0 && delayPercentile <= 100)) {
+            throw new IllegalArgumentException("delayPercentile must be greater than 0 and at most 100");
+        }
+        if (delay < 1) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        if (!(maxHedgeRatio >= 0 && maxHedgeRatio <= 1)) {
+            throw new IllegalArgumentException("maxHedgeRatio must be between 0 and 1");
+        }
+        this.delayPercentile = delayPercentile;
+        this.delayNanos = unit.toNanos(delay);
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.deposit = Math.round(maxHedgeRatio * HEDGE_COST);
+        this.budget = new AtomicLong();
+        this.hedges = new LongAdder();
+        this.hedgeWins = new LongAdder();
+    }
+
+    /**
+     * Gets the percentile of response times after which to hedge.
+     *
+     * @return the percentile, or {@link Double#NaN} if the delay is fixed.
+     */
+    public double getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    /**
+     * Gets the fixed delay, or the minimum delay if the delay is a
+     * percentile.
+     *
+     * @param unit the unit to return. Cannot be <code>null</code>.
+     * @return the delay.
+     */
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * Gets how many hedged requests have been sent under this policy.
+     *
+     * @return the number of hedges.
+     */
+    public long getHedgeCount() {
+        return this.hedges.sum();
+    }
+
+    /**
+     * Gets how many hedged requests got their response before the requests
+     * they duplicated.
+     *
+     * @return the number of hedges.
+     */
+    public long getHedgeWinCount() {
+        return this.hedgeWins.sum();
+    }
+
+    /**
+     * Gets how long to wait before hedging a request.
+     *
+     * @param routeMetrics the statistics of the request's route, or
+     * <code>null</code> if it has none.
+     * @return the delay in nanoseconds, or -1 to not hedge.
+     */
+    long delayNanos(RouteMetrics routeMetrics) {
+        if (Double.isNaN(this.delayPercentile)) {
+            return this.delayNanos;
+        }
+        if (routeMetrics == null) {
+            return -1;
+        }
+        LatencyHistogram responseTime = routeMetrics.getResponseTime();
+        if (responseTime.getCount() < MIN_SAMPLES) {
+            return -1;
+        }
+        return Math.max(this.delayNanos, responseTime.getValueAtPercentile(this.delayPercentile));
+    }
+
+    /**
+     * Adds a request's share to the budget.
+     */
+    void requestStarted() {
+        long capacity = BUDGET_CAPACITY * HEDGE_COST;
+        long current;
+        do {
+            current = this.budget.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!this.budget.compareAndSet(current, Math.min(capacity, current + this.deposit)));
+    }
+
+    /**
+     * Spends a hedge from the budget if it holds one.
+     *
+     * @return whether the hedge may be sent.
+     */
+    boolean tryHedge() {
+        long current;
+        do {
+            current = this.budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!this.budget.compareAndSet(current, current - HEDGE_COST));
+        this.hedges.increment();
+        return true;
+    }
+
+    void hedgeWon() {
+        this.hedgeWins.increment();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy{" + "delayPercentile=" + delayPercentile
+                + ", delayNanos=" + delayNanos
+                + ", maxHedgeRatio=" + maxHedgeRatio + '}';
+    }
+}
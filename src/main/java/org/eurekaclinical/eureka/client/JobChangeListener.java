@@ -0,0 +1,44 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.List;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobEvent;
+import org.eurekaclinical.eureka.client.comm.JobStatus;
+
+/**
+ * Receives notifications from a {@link JobWatcher} about watched jobs whose
+ * status changed or that have new events.
+ */
+public interface JobChangeListener {
+
+    /**
+     * Called when a watched job is first seen, or when its status has changed
+     * or it has new events since it was last seen.
+     *
+     * @param job the job as just retrieved.
+     * @param previousStatus the job's status when it was last seen, or
+     * <code>null</code> if this is the first time it has been seen.
+     * @param newEvents the job's events that were not present when it was
+     * last seen, in order of occurrence. Empty if there are none.
+     */
+    void jobChanged(Job job, JobStatus previousStatus, List<JobEvent> newEvents);
+}
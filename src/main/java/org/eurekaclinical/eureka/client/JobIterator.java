@@ -0,0 +1,161 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eurekaclinical.eureka.client.comm.Job;
+
+/**
+ * Iterates over the jobs in a JSON array response as they are read from the
+ * network. Each job is deserialized only when it is requested, so no more
+ * than one job is held in memory at a time regardless of how many jobs the
+ * response contains. The connection is released when the last job has been
+ * read, when reading fails, or when the iterator is closed, whichever comes
+ * first. Callers that stop before the end must close the iterator, for
+ * example with try-with-resources.
+ *
+ * Errors reading the response are thrown as {@link UncheckedIOException}.
+ * This class is not thread-safe.
+ */
+public final class JobIterator implements Iterator<Job>, Closeable {
+
+    private final TransportResponse response;
+    private final JsonParser parser;
+    private final ObjectMapper mapper;
+    private boolean started;
+    private boolean ready;
+    private boolean closed;
+
+    /**
+     * Creates an iterator over a response whose status has already been
+     * checked.
+     *
+     * @param response the response. It is closed when the iterator is
+     * closed.
+     * @param mapper the mapper with which to deserialize jobs.
+     */
+    JobIterator(TransportResponse response, ObjectMapper mapper) throws IOException {
+        this.response = response;
+        this.mapper = mapper;
+        try {
+            this.parser = mapper.getJsonFactory().createJsonParser(response.getEntityInputStream());
+        } catch (IOException ex) {
+            response.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.ready) {
+            return true;
+        }
+        if (this.closed) {
+            return false;
+        }
+        try {
+            if (!this.started) {
+                this.started = true;
+                JsonToken token = this.parser.nextToken();
+                if (token == null || token == JsonToken.VALUE_NULL) {
+                    close();
+                    return false;
+                }
+                if (token != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected a JSON array of jobs but got " + token);
+                }
+            }
+            JsonToken token = this.parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                this.ready = true;
+                return true;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a job but got " + token);
+            }
+            close();
+            return false;
+        } catch (IOException ex) {
+            closeQuietly();
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public Job next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.ready = false;
+        try {
+            return this.mapper.readValue(this.parser, Job.class);
+        } catch (IOException ex) {
+            closeQuietly();
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Returns a sequential stream over the remaining jobs. Closing the stream
+     * closes this iterator.
+     *
+     * @return a new stream.
+     */
+    public Stream<Job> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::closeQuietly);
+    }
+
+    /**
+     * Releases the connection. Jobs that have not been read are discarded.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.ready = false;
+        try {
+            this.parser.close();
+        } finally {
+            this.response.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignore) {
+        }
+    }
+}
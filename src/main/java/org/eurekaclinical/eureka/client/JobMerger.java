@@ -0,0 +1,110 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.List;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobEvent;
+import org.eurekaclinical.eureka.client.comm.JobStatus;
+
+/**
+ * Brings a job retrieved earlier up to date with the events that have
+ * occurred since, as returned by
+ * {@link EurekaClient#getJobEvents(Long, Long)}, so that a job can be
+ * followed without retrieving all of its events again.
+ */
+public final class JobMerger {
+
+    private JobMerger() {
+    }
+
+    /**
+     * Gets the unique identifier of a job's most recent event.
+     *
+     * @param job a job. Cannot be <code>null</code>.
+     * @return the largest event id, or <code>null</code> if the job has no
+     * events.
+     */
+    public static Long lastEventId(Job job) {
+        List<JobEvent> jobEvents = job.getJobEvents();
+        Long result = null;
+        if (jobEvents != null) {
+            for (JobEvent event : jobEvents) {
+                Long id = event.getId();
+                if (id != null && (result == null || id > result)) {
+                    result = id;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Appends new events to a job, in order, and sets the job's status to
+     * that of the last event. Events that are not newer than the job's most
+     * recent event are ignored, so merging the same events twice has no
+     * effect. If the last event shows that the job finished, that is,
+     * completed or failed, the job's finish time is set to that event's time
+     * stamp, unless it is set already.
+     *
+     * @param job the job to update. Cannot be <code>null</code>.
+     * @param newEvents events that occurred after the job's most recent
+     * event, in order of occurrence. May be <code>null</code>.
+     * @return whether any events were appended.
+     */
+    public static boolean merge(Job job, List<JobEvent> newEvents) {
+        if (job == null) {
+            throw new IllegalArgumentException("job cannot be null");
+        }
+        if (newEvents == null || newEvents.isEmpty()) {
+            return false;
+        }
+        List<JobEvent> jobEvents = job.getJobEvents();
+        if (jobEvents == null) {
+            jobEvents = new ArrayList<>(newEvents.size());
+            job.setJobEvents(jobEvents);
+        }
+        Long lastEventId = lastEventId(job);
+        JobEvent last = null;
+        for (JobEvent event : newEvents) {
+            Long id = event.getId();
+            if (lastEventId != null && id != null && id <= lastEventId) {
+                continue;
+            }
+            jobEvents.add(event);
+            last = event;
+            if (id != null) {
+                lastEventId = id;
+            }
+        }
+        if (last == null) {
+            return false;
+        }
+        JobStatus status = last.getStatus();
+        if (status != null) {
+            job.setStatus(status);
+            if (JobWaiter.FINISHED_STATUSES.contains(status) && job.getFinishTimestamp() == null) {
+                job.setFinishTimestamp(last.getTimeStamp());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobFilter;
+
+/**
+ * Iterates over the jobs that match a filter, requesting them a page at a
+ * time with {@link EurekaClient#getJobs(JobFilter, int, int)}. The next page
+ * is requested only when the jobs of the current page have been consumed, and
+ * iteration stops after a page with fewer jobs than the page size. If the
+ * server ignores the paging parameters and returns more jobs than were asked
+ * for, those jobs are returned and no further pages are requested.
+ *
+ * Failed requests are thrown as {@link UncheckedClientException}. This class
+ * is not thread-safe.
+ */
+public final class JobPageIterator implements Iterator<Job> {
+
+    private final EurekaClient client;
+    private final JobFilter filter;
+    private final int pageSize;
+    private int offset;
+    private Iterator<Job> page;
+    private boolean lastPage;
+
+    JobPageIterator(EurekaClient client, JobFilter filter, int offset, int pageSize) {
+        this.client = client;
+        this.filter = filter;
+        this.offset = offset;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.page == null || !this.page.hasNext()) {
+            if (this.lastPage) {
+                return false;
+            }
+            List<Job> jobs;
+            try {
+                jobs = this.client.getJobs(this.filter, this.offset, this.pageSize);
+            } catch (ClientException ex) {
+                throw new UncheckedClientException(ex);
+            }
+            this.offset += jobs.size();
+            this.lastPage = jobs.size() != this.pageSize;
+            this.page = jobs.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Job next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.page.next();
+    }
+
+    /**
+     * Gets the offset of the first job that has not yet been requested.
+     *
+     * @return the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+}
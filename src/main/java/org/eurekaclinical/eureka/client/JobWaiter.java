@@ -0,0 +1,269 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for jobs to finish by retrieving them with
+ * {@link EurekaClient#getJob(java.lang.Long) } and then polling them for new
+ * events with {@link EurekaClient#refreshJob(Job)}. There is at most one poller
+ * per job, shared by everyone waiting for that job. The poller polls soon
+ * after a job starts and less often as the job ages, and it stops when the
+ * job finishes or nobody is waiting for it anymore.
+ */
+final class JobWaiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobWaiter.class);
+
+    /**
+     * The job statuses that mean that a job has finished. A job may go on
+     * after a warning or an error; it has failed only once its status is
+     * {@link JobStatus#FAILED}.
+     */
+    static final Set<JobStatus> FINISHED_STATUSES = EnumSet.of(
+            JobStatus.COMPLETED, JobStatus.FAILED);
+
+    /**
+     * The shortest time between polls.
+     */
+    static final long MIN_INTERVAL_MILLIS = 250;
+
+    /**
+     * The longest time between polls.
+     */
+    static final long MAX_INTERVAL_MILLIS = 30000;
+
+    /**
+     * The time between polls as a fraction of the job's age.
+     */
+    private static final double AGE_FRACTION = 0.1;
+
+    private final EurekaClient client;
+    private final ConcurrentMap<Long, Poller> pollers;
+
+    JobWaiter(EurekaClient client) {
+        this.client = client;
+        this.pollers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Waits for a job to finish.
+     *
+     * @param jobId the job's unique identifier. Cannot be <code>null</code>.
+     * @param timeout how long to wait.
+     * @param unit the timeout's unit. Cannot be <code>null</code>.
+     * @return a future for the finished job. It fails with a
+     * {@link TimeoutException} if the job has not finished in time, or with
+     * a {@link ClientException} if the job does not exist.
+     */
+    CompletableFuture<Job> await(Long jobId, long timeout, TimeUnit unit) {
+        Poller[] created = new Poller[1];
+        Poller poller = this.pollers.compute(jobId, (id, existing) -> {
+            Poller p = existing;
+            if (p == null) {
+                p = new Poller(id);
+                created[0] = p;
+            }
+            p.waiters++;
+            return p;
+        });
+        if (created[0] != null) {
+            created[0].schedule(0);
+        }
+        CompletableFuture<Job> result = poller.job.thenApply(Function.identity());
+        ScheduledFuture<?> timer = ClientExecutors.scheduler().schedule(
+                () -> result.completeExceptionally(new TimeoutException(
+                        "Job " + jobId + " did not finish within " + timeout + " " + unit)),
+                timeout, unit);
+        result.whenComplete((job, throwable) -> {
+            timer.cancel(false);
+            release(poller);
+        });
+        return result;
+    }
+
+    /**
+     * Removes a waiter from a poller, stopping the poller if it was the last
+     * one.
+     */
+    private void release(Poller poller) {
+        this.pollers.computeIfPresent(poller.jobId, (id, p) -> {
+            if (p != poller) {
+                return p;
+            }
+            if (--p.waiters == 0) {
+                p.stop();
+                return null;
+            }
+            return p;
+        });
+    }
+
+    private final class Poller {
+
+        private final Long jobId;
+        private final long created;
+        private final CompletableFuture<Job> job;
+        /**
+         * The number of waiters. Only modified within the pollers map's
+         * compute methods, which are atomic for a given job.
+         */
+        private int waiters;
+        private volatile boolean stopped;
+        private volatile ScheduledFuture<?> next;
+        /**
+         * The job as of the last poll. Only accessed by poll, which never
+         * runs concurrently with itself.
+         */
+        private Job current;
+        /**
+         * Whether to retrieve the whole job on each poll because the events
+         * endpoint was not found. If that was because the job no longer
+         * exists, retrieving it fails too. Only accessed by poll.
+         */
+        private boolean eventsUnsupported;
+
+        Poller(Long jobId) {
+            this.jobId = jobId;
+            this.created = System.currentTimeMillis();
+            this.job = new CompletableFuture<>();
+        }
+
+        void schedule(long delayMillis) {
+            if (!this.stopped) {
+                this.next = ClientExecutors.scheduler().schedule(
+                        this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void stop() {
+            this.stopped = true;
+            ScheduledFuture<?> n = this.next;
+            if (n != null) {
+                n.cancel(false);
+            }
+            this.job.completeExceptionally(new CancellationException("No longer waiting for job " + this.jobId));
+        }
+
+        private void dispatch() {
+            try {
+                client.getExecutor().execute(this::poll);
+            } catch (RejectedExecutionException ex) {
+                poll();
+            }
+        }
+
+        private void poll() {
+            if (this.stopped) {
+                return;
+            }
+            try {
+                Job j = this.current;
+                if (j != null && !this.eventsUnsupported && !refresh(j)) {
+                    this.eventsUnsupported = true;
+                }
+                if (j == null || this.eventsUnsupported) {
+                    j = client.getJob(this.jobId);
+                    this.current = j;
+                }
+                if (j != null && FINISHED_STATUSES.contains(j.getStatus())) {
+                    finish(j, null);
+                } else {
+                    schedule(interval(j));
+                }
+            } catch (ClientException ex) {
+                if (ex.getResponseStatus() == ClientResponse.Status.NOT_FOUND) {
+                    finish(null, ex);
+                } else {
+                    LOGGER.warn("Error polling job {}, will retry", this.jobId, ex);
+                    schedule(interval(null));
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Error polling job {}, will retry", this.jobId, ex);
+                schedule(interval(null));
+            }
+        }
+
+        /**
+         * Polls a job for new events.
+         *
+         * @return whether the job was refreshed, or <code>false</code> if the
+         * events endpoint was not found, which may mean either that the job
+         * no longer exists or that the server has no such endpoint. Only
+         * retrieving the whole job tells which.
+         */
+        private boolean refresh(Job j) throws ClientException {
+            try {
+                client.refreshJob(j);
+                return true;
+            } catch (ClientException ex) {
+                if (ex.getResponseStatus() == ClientResponse.Status.NOT_FOUND) {
+                    return false;
+                }
+                throw ex;
+            }
+        }
+
+        private void finish(Job j, Throwable throwable) {
+            pollers.remove(this.jobId, this);
+            if (throwable != null) {
+                this.job.completeExceptionally(throwable);
+            } else {
+                this.job.complete(j);
+            }
+        }
+
+        /**
+         * Computes the time until the next poll from the job's age, measured
+         * from its start time if known and otherwise from when polling
+         * started.
+         */
+        private long interval(Job j) {
+            long now = System.currentTimeMillis();
+            long age = now - this.created;
+            if (j != null) {
+                Date start = j.getStartTimestamp();
+                if (start != null && now - start.getTime() > age) {
+                    age = now - start.getTime();
+                }
+            }
+            long interval = (long) (age * AGE_FRACTION);
+            return Math.max(MIN_INTERVAL_MILLIS, Math.min(MAX_INTERVAL_MILLIS, interval));
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.eurekaclinical.eureka.client.comm.Job;
+import org.eurekaclinical.eureka.client.comm.JobEvent;
+import org.eurekaclinical.eureka.client.comm.JobFilter;
+import org.eurekaclinical.eureka.client.comm.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches many jobs with a single request per tick. Each tick retrieves the
+ * jobs that were submitted no earlier than the oldest watched job with
+ * {@link EurekaClient#getJobs(JobFilter, int, int) } (or just the latest job
+ * with {@link EurekaClient#getLatestJob() }), compares each watched job's
+ * status and events with what was seen on the previous tick, and notifies
+ * the listeners about the jobs that changed. A job is no longer watched
+ * after it has been reported as
+ * {@link JobStatus#COMPLETED completed} or {@link JobStatus#FAILED failed};
+ * warnings and errors alone do not end a job.
+ *
+ * Call {@link #start() } to begin watching and {@link #close() } to stop.
+ */
+public class JobWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobWatcher.class);
+
+    /**
+     * Which jobs to retrieve on each tick.
+     */
+    public enum Source {
+        /**
+         * Retrieve the user's jobs that were submitted no earlier than the
+         * oldest watched job, which are usually few. While a watched job's
+         * start time is not known, for example before it has been seen, all
+         * of the user's jobs are retrieved instead.
+         */
+        ALL_JOBS,
+        /**
+         * Retrieve only the user's latest job. Cheaper when only the most
+         * recently submitted job is watched.
+         */
+        LATEST_JOB
+    }
+
+    /**
+     * What was seen of a job on the previous tick.
+     */
+    private static final class Snapshot {
+
+        private final JobStatus status;
+        private final int eventCount;
+        private final Long lastEventId;
+        private final Date startTimestamp;
+
+        Snapshot(JobStatus status, int eventCount, Long lastEventId, Date startTimestamp) {
+            this.status = status;
+            this.eventCount = eventCount;
+            this.lastEventId = lastEventId;
+            this.startTimestamp = startTimestamp;
+        }
+    }
+
+    /**
+     * Marks a watched job that has not been seen yet.
+     */
+    private static final Snapshot UNSEEN = new Snapshot(null, 0, null, null);
+
+    /**
+     * The number of jobs to request at a time.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    private final EurekaClient client;
+    private final long intervalNanos;
+    private final Source source;
+    private final Map<Long, Snapshot> watched;
+    private final List<JobChangeListener> listeners;
+    private final AtomicBoolean ticking;
+    private ScheduledFuture<?> timer;
+
+    /**
+     * Creates a watcher that retrieves the watched jobs on each tick, as
+     * described in {@link Source#ALL_JOBS}.
+     *
+     * @param client the client with which to retrieve jobs. Cannot be
+     * <code>null</code>.
+     * @param interval the time between ticks. Must be positive.
+     * @param unit the interval's unit. Cannot be <code>null</code>.
+     */
+    public JobWatcher(EurekaClient client, long interval, TimeUnit unit) {
+        this(client, interval, unit, Source.ALL_JOBS);
+    }
+
+    /**
+     * Creates a watcher.
+     *
+     * @param client the client with which to retrieve jobs. Cannot be
+     * <code>null</code>.
+     * @param interval the time between ticks. Must be positive.
+     * @param unit the interval's unit. Cannot be <code>null</code>.
+     * @param source which jobs to retrieve on each tick. Cannot be
+     * <code>null</code>.
+     */
+    public JobWatcher(EurekaClient client, long interval, TimeUnit unit, Source source) {
+        if (client == null) {
+            throw new IllegalArgumentException("client cannot be null");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        this.client = client;
+        this.intervalNanos = unit.toNanos(interval);
+        this.source = source;
+        this.watched = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.ticking = new AtomicBoolean();
+    }
+
+    public void addListener(JobChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(JobChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching a job. The listeners are notified about it on the first
+     * tick on which it is retrieved.
+     *
+     * @param jobId the job's unique identifier. Cannot be <code>null</code>.
+     */
+    public void watch(Long jobId) {
+        if (jobId == null) {
+            throw new IllegalArgumentException("jobId cannot be null");
+        }
+        this.watched.putIfAbsent(jobId, UNSEEN);
+    }
+
+    public void unwatch(Long jobId) {
+        this.watched.remove(jobId);
+    }
+
+    /**
+     * Gets the jobs being watched.
+     *
+     * @return an unmodifiable view of the watched jobs' unique identifiers.
+     */
+    public Set<Long> getWatchedJobIds() {
+        return Collections.unmodifiableSet(this.watched.keySet());
+    }
+
+    /**
+     * Starts the ticks. The first tick happens immediately.
+     */
+    public synchronized void start() {
+        if (this.timer == null) {
+            this.timer = ClientExecutors.scheduler().scheduleWithFixedDelay(
+                    this::dispatch, 0, this.intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the ticks. A tick that is in progress finishes.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.timer != null) {
+            this.timer.cancel(false);
+            this.timer = null;
+        }
+    }
+
+    /**
+     * Retrieves the jobs and notifies the listeners about the watched jobs
+     * that changed. Called by the timer, and may be called directly to
+     * refresh immediately.
+     *
+     * @throws ClientException if retrieving the jobs failed.
+     */
+    public void refresh() throws ClientException {
+        if (this.watched.isEmpty()) {
+            return;
+        }
+        List<Job> jobs = this.source == Source.LATEST_JOB
+                ? this.client.getLatestJob() : getWatchedJobs();
+        for (Job job : jobs) {
+            Long jobId = job.getId();
+            Snapshot previous = jobId != null ? this.watched.get(jobId) : null;
+            if (previous == null) {
+                continue;
+            }
+            List<JobEvent> events = job.getJobEvents() != null
+                    ? job.getJobEvents() : Collections.<JobEvent>emptyList();
+            List<JobEvent> newEvents = newEvents(previous, events);
+            boolean finished = JobWaiter.FINISHED_STATUSES.contains(job.getStatus());
+            if (previous == UNSEEN || previous.status != job.getStatus() || !newEvents.isEmpty()) {
+                Snapshot current = new Snapshot(job.getStatus(), events.size(),
+                        events.isEmpty() ? null : events.get(events.size() - 1).getId(),
+                        job.getStartTimestamp());
+                if (finished) {
+                    this.watched.remove(jobId, previous);
+                } else if (!this.watched.replace(jobId, previous, current)) {
+                    continue;
+                }
+                fire(job, previous.status, newEvents);
+            } else if (finished) {
+                this.watched.remove(jobId, previous);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the watched jobs, a page at a time, by asking for the jobs
+     * that started no earlier than the oldest of them. If the start time of
+     * any of them is not known, all jobs are retrieved, so that the
+     * retrieval takes the same requests however many jobs are watched.
+     */
+    private List<Job> getWatchedJobs() throws ClientException {
+        Date from = null;
+        for (Snapshot snapshot : this.watched.values()) {
+            Date start = snapshot.startTimestamp;
+            if (start == null) {
+                from = null;
+                break;
+            } else if (from == null || start.before(from)) {
+                from = start;
+            }
+        }
+        JobFilter filter = from != null
+                ? new JobFilter(null, null, null, new Date(from.getTime() - 1), null, null) : null;
+        List<Job> jobs = new ArrayList<>();
+        for (int offset = 0;; offset += PAGE_SIZE) {
+            List<Job> page = this.client.getJobs(filter, offset, PAGE_SIZE);
+            jobs.addAll(page);
+            if (page.size() != PAGE_SIZE) {
+                break;
+            }
+        }
+        return jobs;
+    }
+
+    private void dispatch() {
+        if (this.watched.isEmpty() || !this.ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.client.getExecutor().execute(this::tick);
+        } catch (RejectedExecutionException ex) {
+            this.ticking.set(false);
+            LOGGER.warn("Could not schedule job status refresh", ex);
+        }
+    }
+
+    private void tick() {
+        try {
+            refresh();
+        } catch (ClientException | RuntimeException ex) {
+            LOGGER.warn("Error refreshing job statuses", ex);
+        } finally {
+            this.ticking.set(false);
+        }
+    }
+
+    /**
+     * Finds the events after the last event seen previously. Events are
+     * matched by unique identifier if they have one, and otherwise by
+     * position.
+     */
+    private static List<JobEvent> newEvents(Snapshot previous, List<JobEvent> events) {
+        int from = previous.eventCount;
+        if (previous.lastEventId != null) {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                if (previous.lastEventId.equals(events.get(i).getId())) {
+                    from = i + 1;
+                    break;
+                }
+            }
+        }
+        if (from >= events.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(events.subList(from, events.size()));
+    }
+
+    private void fire(Job job, JobStatus previousStatus, List<JobEvent> newEvents) {
+        for (JobChangeListener listener : this.listeners) {
+            try {
+                listener.jobChanged(job, previousStatus, newEvents);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Job change listener threw an exception", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * A <code>multipart/form-data</code> request body with a single file part
+ * that is read from disk as the body is sent, rather than assembled in
+ * memory. Its length is known in advance, as a long, so files larger than
+ * 2 GB are supported.
+ */
+final class MultipartFileBody {
+
+    /**
+     * How many bytes to send between progress notifications.
+     */
+    private static final long PROGRESS_INTERVAL = 1024 * 1024;
+
+    private final String boundary;
+    private final byte[] head;
+    private final byte[] tail;
+    private final Path file;
+    private final long fileSize;
+
+    /**
+     * Creates a body.
+     *
+     * @param fieldName the form field name of the file part.
+     * @param fileName the file name to send.
+     * @param file the file to send.
+     */
+    MultipartFileBody(String fieldName, String fileName, Path file) throws IOException {
+        this.boundary = "Boundary_" + UUID.randomUUID().toString().replace("-", "");
+        this.head = ("--" + this.boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + quote(fieldName)
+                + "\"; filename=\"" + quote(fileName) + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "\r\n").getBytes(StandardCharsets.UTF_8);
+        this.tail = ("\r\n--" + this.boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        this.file = file;
+        this.fileSize = Files.size(file);
+    }
+
+    /**
+     * Gets the value of the request's <code>Content-Type</code> header.
+     *
+     * @return the multipart media type with this body's boundary.
+     */
+    String getContentType() {
+        return "multipart/form-data; boundary=" + this.boundary;
+    }
+
+    /**
+     * Gets the body's length in bytes.
+     *
+     * @return the length.
+     */
+    long getLength() {
+        return this.head.length + this.fileSize + this.tail.length;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Opens a stream over the body. The file is read only as the stream is
+     * read.
+     *
+     * @param listener notified of the number of file bytes read, or
+     * <code>null</code>.
+     * @param limiter limits the rate at which the file is read, or
+     * <code>null</code>.
+     * @return a new stream, which the caller must close.
+     */
+    InputStream open(TransferListener listener, BandwidthLimiter limiter) throws IOException {
+        InputStream fileStream = Files.newInputStream(this.file);
+        if (limiter != null) {
+            fileStream = limiter.limit(fileStream);
+        }
+        if (listener != null) {
+            fileStream = new ProgressInputStream(fileStream, this.fileSize, listener);
+        }
+        return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(this.head),
+                fileStream,
+                new ByteArrayInputStream(this.tail))));
+    }
+
+    private static String quote(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\r", "").replace("\n", "");
+    }
+
+    /**
+     * Counts the bytes read from a stream and reports them to a listener.
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+
+        private final long total;
+        private final TransferListener listener;
+        private long count;
+        private long reported;
+
+        ProgressInputStream(InputStream in, long total, TransferListener listener) {
+            super(in);
+            this.total = total;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            advance(b == -1 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            advance(n);
+            return n;
+        }
+
+        private void advance(int n) {
+            if (n > 0) {
+                this.count += n;
+            }
+            if ((n == -1 || this.count == this.total || this.count - this.reported >= PROGRESS_INTERVAL)
+                    && this.reported != this.count) {
+                this.reported = this.count;
+                this.listener.progress(this.count, this.total);
+            }
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.ws.rs.core.HttpHeaders;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a destination's output to a file. A plain download copies the
+ * response into the file. A resumable download requests the output in one or
+ * more byte ranges that are written in place at their positions in the file,
+ * and records how far each range has gotten in a checkpoint file next to the
+ * target. A range whose connection drops is requested again from where it
+ * left off, and a download that is started again after failing continues
+ * from the checkpoint if the output has not changed in the meantime.
+ */
+final class OutputDownload {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutputDownload.class);
+
+    /**
+     * The most bytes to transfer from the network to the file at a time.
+     */
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
+    /**
+     * How many bytes a range transfers between checkpoints.
+     */
+    private static final long CHECKPOINT_INTERVAL = 16 * 1024 * 1024;
+
+    /**
+     * How many times a range is requested before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final EurekaClient client;
+    private final String destinationId;
+    private final Path target;
+    private final Path checkpointFile;
+    private final int parallelRanges;
+    private final AtomicLong transferred;
+    private String validator;
+    private long length;
+    private long[] starts;
+    private long[] ends;
+    private AtomicLongArray nexts;
+
+    OutputDownload(EurekaClient client, String destinationId, Path target, int parallelRanges) {
+        this.client = client;
+        this.destinationId = destinationId;
+        this.target = target;
+        this.checkpointFile = target.resolveSibling(target.getFileName() + CHECKPOINT_SUFFIX);
+        this.parallelRanges = parallelRanges;
+        this.transferred = new AtomicLong();
+    }
+
+    /**
+     * Copies a successful output response into a file, extending the file to
+     * the response's length first if it is known.
+     *
+     * @param response a response with status OK. It is closed.
+     * @param target the file to write.
+     * @param destinationId the destination's unique name, for messages.
+     * @return the number of bytes written.
+     */
+    static long copy(TransportResponse response, Path target, String destinationId) throws IOException {
+        long length = contentLength(response);
+        long position = 0;
+        try (ReadableByteChannel in = Channels.newChannel(response.getEntityInputStream());
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (length > 0) {
+                out.write(ByteBuffer.allocate(1), length - 1);
+            }
+            long n;
+            while ((n = out.transferFrom(in, position, TRANSFER_SIZE)) > 0) {
+                position += n;
+            }
+            if (length >= 0 && position != length) {
+                throw new IOException("Output of destination " + destinationId
+                        + " ended after " + position + " of " + length + " bytes");
+            }
+            out.truncate(position);
+        } finally {
+            response.close();
+        }
+        return position;
+    }
+
+    /**
+     * Gets a response's <code>Content-Length</code> as a long, so that
+     * lengths over 2 GB can be represented.
+     *
+     * @return the length, or -1 if the header is missing or invalid.
+     */
+    static long contentLength(TransportResponse response) {
+        String contentLength = response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs a resumable download.
+     *
+     * @return the number of bytes transferred by this call and how long it
+     * took.
+     */
+    TransferStatistics run() throws ClientException, IOException {
+        long start = System.nanoTime();
+        if (!loadCheckpoint()) {
+            TransportResponse probe = this.client.getOutputResponse(this.destinationId, "bytes=0-0", null);
+            if (probe.getStatus() == ClientResponse.Status.OK.getStatusCode()) {
+                LOGGER.debug("Server does not support ranges for the output of destination {}; downloading it in one piece",
+                        this.destinationId);
+                return new TransferStatistics(copy(probe, this.target, this.destinationId), System.nanoTime() - start);
+            }
+            if (probe.getStatus() == ClientResponse.Status.REQUESTED_RANGE_NOT_SATIFIABLE.getStatusCode()) {
+                probe.close();
+                Files.deleteIfExists(this.target);
+                Files.createFile(this.target);
+                return new TransferStatistics(0, System.nanoTime() - start);
+            }
+            ClientExceptions.ensureStatus(probe, ClientResponse.Status.PARTIAL_CONTENT);
+            try {
+                this.length = totalLength(probe);
+                this.validator = validator(probe);
+            } finally {
+                probe.close();
+            }
+            split();
+            try (FileChannel out = FileChannel.open(this.target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.write(ByteBuffer.allocate(1), this.length - 1);
+            }
+            saveCheckpoint(null);
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < this.starts.length; i++) {
+            if (this.nexts.get(i) <= this.ends[i]) {
+                pending.add(i);
+            }
+        }
+        try (FileChannel out = FileChannel.open(this.target, StandardOpenOption.WRITE)) {
+            FanOut<Integer, Void> fetches = FanOut.start(pending, i -> {
+                fetchRange(out, i);
+                return null;
+            }, concurrency(), this.client.getExecutor());
+            fetches.await();
+            saveCheckpoint(out);
+            Map<Integer, ClientException> failures = fetches.getFailures();
+            if (!failures.isEmpty()) {
+                throw unwrap(failures);
+            }
+            if (out.size() != this.length) {
+                throw new IOException("Downloaded output of destination " + this.destinationId
+                        + " has " + out.size() + " bytes but should have " + this.length);
+            }
+        }
+        Files.deleteIfExists(this.checkpointFile);
+        return new TransferStatistics(this.transferred.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Downloads what remains of a range, requesting it again from where it
+     * left off if the connection fails or drops, up to {@link #MAX_ATTEMPTS}
+     * times in all.
+     */
+    private void fetchRange(FileChannel out, int i) throws ClientException {
+        int attempt = 0;
+        while (this.nexts.get(i) <= this.ends[i]) {
+            attempt++;
+            long next = this.nexts.get(i);
+            TransportResponse response;
+            try {
+                response = this.client.getOutputResponse(this.destinationId,
+                        "bytes=" + next + "-" + this.ends[i], this.validator);
+            } catch (ClientException ex) {
+                if (ex.getCause() == null || attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+                LOGGER.warn("Error requesting output of destination {} from byte {}, retrying",
+                        this.destinationId, next, ex);
+                continue;
+            }
+            if (response.getStatus() == ClientResponse.Status.OK.getStatusCode()) {
+                response.close();
+                discardCheckpoint();
+                throw new UncheckedIOException(new IOException("Output of destination "
+                        + this.destinationId + " changed during the download"));
+            }
+            ClientExceptions.ensureStatus(response, ClientResponse.Status.PARTIAL_CONTENT);
+            long rangeStart = rangeStart(response);
+            if (rangeStart != next) {
+                response.close();
+                throw new UncheckedIOException(new IOException("Output of destination "
+                        + this.destinationId + " was sent from byte " + rangeStart
+                        + " when requested from byte " + next));
+            }
+            long sinceCheckpoint = 0;
+            try (ReadableByteChannel in = Channels.newChannel(response.getEntityInputStream())) {
+                long n;
+                while (next <= this.ends[i]
+                        && (n = out.transferFrom(in, next, Math.min(TRANSFER_SIZE, this.ends[i] + 1 - next))) > 0) {
+                    next += n;
+                    this.nexts.set(i, next);
+                    this.transferred.addAndGet(n);
+                    sinceCheckpoint += n;
+                    if (sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                        saveCheckpoint(out);
+                        sinceCheckpoint = 0;
+                    }
+                }
+                if (next <= this.ends[i]) {
+                    throw new IOException("Connection closed at byte " + next
+                            + " of range ending at byte " + this.ends[i]);
+                }
+            } catch (IOException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new UncheckedIOException(ex);
+                }
+                LOGGER.warn("Error downloading output of destination {} at byte {}, resuming",
+                        this.destinationId, this.nexts.get(i), ex);
+            } finally {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * Gets how many ranges to fetch at once. Each range holds a place in the
+     * client's transfer bulkhead while its body is read, so no more are
+     * fetched at once than the bulkhead allows; more would wait out the
+     * bulkhead's maximum wait and fail.
+     */
+    private int concurrency() {
+        Bulkhead bulkhead = this.client.getBulkhead(RouteClass.TRANSFER);
+        return bulkhead != null ? Math.min(this.parallelRanges, bulkhead.getMaxConcurrent()) : this.parallelRanges;
+    }
+
+    private void split() {
+        int n = (int) Math.max(1, Math.min(this.parallelRanges, this.length / TRANSFER_SIZE));
+        this.starts = new long[n];
+        this.ends = new long[n];
+        this.nexts = new AtomicLongArray(n);
+        long size = this.length / n;
+        for (int i = 0; i < n; i++) {
+            this.starts[i] = i * size;
+            this.ends[i] = i == n - 1 ? this.length - 1 : (i + 1) * size - 1;
+            this.nexts.set(i, this.starts[i]);
+        }
+    }
+
+    /**
+     * Loads the checkpoint file if there is one for this destination and
+     * the target file is still the right length.
+     *
+     * @return whether there was a usable checkpoint.
+     */
+    private boolean loadCheckpoint() throws IOException {
+        if (!Files.exists(this.checkpointFile) || !Files.exists(this.target)) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(this.checkpointFile)) {
+            properties.load(in);
+            if (!this.destinationId.equals(properties.getProperty("destinationId"))) {
+                return false;
+            }
+            this.length = Long.parseLong(properties.getProperty("length"));
+            this.validator = properties.getProperty("validator");
+            int n = Integer.parseInt(properties.getProperty("ranges"));
+            this.starts = new long[n];
+            this.ends = new long[n];
+            this.nexts = new AtomicLongArray(n);
+            for (int i = 0; i < n; i++) {
+                this.starts[i] = Long.parseLong(properties.getProperty("range." + i + ".start"));
+                this.ends[i] = Long.parseLong(properties.getProperty("range." + i + ".end"));
+                this.nexts.set(i, Long.parseLong(properties.getProperty("range." + i + ".next")));
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Ignoring unreadable checkpoint {}", this.checkpointFile, ex);
+            return false;
+        }
+        if (Files.size(this.target) != this.length) {
+            return false;
+        }
+        LOGGER.debug("Resuming download of output of destination {} from {}",
+                this.destinationId, this.checkpointFile);
+        return true;
+    }
+
+    /**
+     * Records each range's progress. The file's contents are forced to
+     * storage first so that the checkpoint never claims bytes that were not
+     * written.
+     *
+     * @param out the file being written, or <code>null</code> if nothing
+     * has been written yet.
+     */
+    private synchronized void saveCheckpoint(FileChannel out) throws IOException {
+        if (out != null) {
+            out.force(false);
+        }
+        Properties properties = new Properties();
+        properties.setProperty("destinationId", this.destinationId);
+        properties.setProperty("length", Long.toString(this.length));
+        if (this.validator != null) {
+            properties.setProperty("validator", this.validator);
+        }
+        properties.setProperty("ranges", Integer.toString(this.starts.length));
+        for (int i = 0; i < this.starts.length; i++) {
+            properties.setProperty("range." + i + ".start", Long.toString(this.starts[i]));
+            properties.setProperty("range." + i + ".end", Long.toString(this.ends[i]));
+            properties.setProperty("range." + i + ".next", Long.toString(this.nexts.get(i)));
+        }
+        Path tmp = this.checkpointFile.resolveSibling(this.checkpointFile.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            properties.store(os, "Download of the output of destination " + this.destinationId);
+        }
+        Files.move(tmp, this.checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void discardCheckpoint() {
+        try {
+            Files.deleteIfExists(this.checkpointFile);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not delete checkpoint {}", this.checkpointFile, ex);
+        }
+    }
+
+    /**
+     * Gets the first byte position of a partial response's
+     * <code>Content-Range</code> header.
+     *
+     * @return the position, or -1 if the header is missing or invalid.
+     */
+    private static long rangeStart(TransportResponse response) {
+        String contentRange = response.getHeaders().getFirst("Content-Range");
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private long totalLength(TransportResponse response) throws IOException {
+        String contentRange = response.getHeaders().getFirst("Content-Range");
+        int slash = contentRange != null ? contentRange.lastIndexOf('/') : -1;
+        if (slash < 0) {
+            throw new IOException("Missing or invalid Content-Range header: " + contentRange);
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException("Output of destination " + this.destinationId
+                    + " has unknown length: " + contentRange, ex);
+        }
+    }
+
+    /**
+     * Gets the value to send in <code>If-Range</code> headers: the strong
+     * entity tag if there is one, or else the last modified date.
+     */
+    private static String validator(TransportResponse response) {
+        String etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    private static Exception unwrapOne(ClientException failure) {
+        Throwable cause = failure.getCause();
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        return failure;
+    }
+
+    /**
+     * Rethrows the failed ranges' exceptions: an {@link IOException} if a
+     * range failed writing the file or its connection kept dropping, else
+     * the {@link ClientException}s.
+     */
+    private ClientException unwrap(Map<Integer, ClientException> failures) throws IOException {
+        for (ClientException failure : failures.values()) {
+            Exception ex = unwrapOne(failure);
+            if (ex instanceof IOException) {
+                throw (IOException) ex;
+            }
+        }
+        if (failures.size() == 1) {
+            return failures.values().iterator().next();
+        }
+        Map<String, ClientException> byRange = new LinkedHashMap<>();
+        for (Map.Entry<Integer, ClientException> me : failures.entrySet()) {
+            int i = me.getKey();
+            byRange.put("bytes=" + this.starts[i] + "-" + this.ends[i], me.getValue());
+        }
+        return new AggregateClientException("Could not download output of destination " + this.destinationId, byRange);
+    }
+}
@@ -0,0 +1,230 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Reads a stream and returns its contents in gzip format, compressing blocks
+ * of it concurrently. The source is split into fixed-size blocks, and each
+ * block is compressed on the executor into a raw deflate segment that ends
+ * on a byte boundary, primed with the last 32 KB of the previous block so
+ * that little compression is lost at block boundaries. The segments are
+ * returned in order between a gzip header and trailer, so the result is a
+ * single ordinary gzip member that any gzip decoder can read. The checksum
+ * is computed over the source as it is read.
+ *
+ * At most <code>parallelism</code> blocks are held at a time, so memory use
+ * does not depend on the length of the source.
+ */
+final class ParallelGzipInputStream extends InputStream {
+
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    /**
+     * An empty final deflate block with fixed Huffman codes.
+     */
+    private static final byte[] LAST_BLOCK = {0x03, 0x00};
+
+    private final InputStream source;
+    private final Executor executor;
+    private final int parallelism;
+    private final Deque<Future<byte[]>> pending;
+    private final CRC32 crc;
+    private long size;
+    private byte[] dictionary;
+    private boolean headerDone;
+    private boolean sourceDone;
+    private boolean trailerDone;
+    private byte[] current;
+    private int position;
+
+    /**
+     * Creates a stream.
+     *
+     * @param source the stream to compress. It is closed when this stream
+     * is closed.
+     * @param executor the executor on which to compress blocks. If it
+     * rejects a block, the block is compressed on the reading thread.
+     * @param parallelism the maximum number of blocks to compress at once.
+     */
+    ParallelGzipInputStream(InputStream source, Executor executor, int parallelism) {
+        this.source = source;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.pending = new ArrayDeque<>(this.parallelism);
+        this.crc = new CRC32();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        return this.current[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        int n = Math.min(len, this.current.length - this.position);
+        System.arraycopy(this.current, this.position, b, off, n);
+        this.position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> future : this.pending) {
+            future.cancel(false);
+        }
+        this.pending.clear();
+        this.source.close();
+    }
+
+    private boolean ensureCurrent() throws IOException {
+        while (this.current == null || this.position == this.current.length) {
+            byte[] next = nextChunk();
+            if (next == null) {
+                return false;
+            }
+            this.current = next;
+            this.position = 0;
+        }
+        return true;
+    }
+
+    private byte[] nextChunk() throws IOException {
+        if (!this.headerDone) {
+            this.headerDone = true;
+            return HEADER;
+        }
+        submitBlocks();
+        Future<byte[]> future = this.pending.poll();
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            } catch (ExecutionException ex) {
+                throw new IOException("Error compressing request body", ex.getCause());
+            }
+        }
+        if (!this.trailerDone) {
+            this.trailerDone = true;
+            return trailer();
+        }
+        return null;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (!this.sourceDone && this.pending.size() < this.parallelism) {
+            byte[] block = readBlock();
+            if (block.length == 0) {
+                break;
+            }
+            this.crc.update(block, 0, block.length);
+            this.size += block.length;
+            byte[] blockDictionary = this.dictionary;
+            this.dictionary = block.length >= DICTIONARY_SIZE
+                    ? Arrays.copyOfRange(block, block.length - DICTIONARY_SIZE, block.length)
+                    : block;
+            FutureTask<byte[]> task = new FutureTask<>(() -> compress(block, blockDictionary));
+            try {
+                this.executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.run();
+            }
+            this.pending.add(task);
+        }
+    }
+
+    private byte[] readBlock() throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        int length = 0;
+        while (length < block.length) {
+            int n = this.source.read(block, length, block.length - length);
+            if (n == -1) {
+                this.sourceDone = true;
+                break;
+            }
+            length += n;
+        }
+        return length == block.length ? block : Arrays.copyOf(block, length);
+    }
+
+    private static byte[] compress(byte[] block, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(block);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(block.length / 2);
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, n);
+            } while (n == buffer.length);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] trailer() {
+        byte[] trailer = Arrays.copyOf(LAST_BLOCK, LAST_BLOCK.length + 8);
+        writeInt(trailer, LAST_BLOCK.length, this.crc.getValue());
+        writeInt(trailer, LAST_BLOCK.length + 4, this.size);
+        return trailer;
+    }
+
+    private static void writeInt(byte[] b, int off, long value) {
+        for (int i = 0; i < 4; i++) {
+            b[off + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
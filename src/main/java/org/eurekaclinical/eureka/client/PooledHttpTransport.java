@@ -0,0 +1,331 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.core.header.InBoundHeaders;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * A transport that keeps a pool of keep-alive connections, built on Apache
+ * HttpClient, which is an optional dependency that applications using this
+ * transport must add themselves. Connections are reused across requests rather than opened for
+ * each one, up to a maximum per route (scheme, host and port) and in total,
+ * and connections that have been idle for too long are closed in the
+ * background. Request bodies of unknown length are sent in chunks.
+ *
+ * Configure the transport before its first request; the setters throw
+ * {@link IllegalStateException} afterward. The connection pool is created on
+ * the first request and released by {@link #close()}.
+ *
+ * Requests are sent as given. They do not pass through the filters of the
+ * Jersey client that {@link EurekaClient} inherits, so any authentication
+ * that those filters add must be added with a {@link RequestDecorator}; see
+ * {@link EurekaClient#setRequestDecorator(RequestDecorator)}.
+ */
+public class PooledHttpTransport implements EurekaTransport {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 100;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+
+    public static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * How long a pooled connection may be unused before it is checked
+     * before being reused.
+     */
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+    private int receiveBufferSize;
+    private int sendBufferSize;
+    private boolean tcpNoDelay = true;
+    private volatile CloseableHttpClient httpClient;
+    private boolean closed;
+
+    public synchronized int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of connections to a single host and port. The
+     * default is {@link #DEFAULT_MAX_CONNECTIONS_PER_ROUTE}.
+     *
+     * @param maxConnectionsPerRoute a positive number.
+     */
+    public synchronized void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        checkNotStarted();
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be positive");
+        }
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public synchronized int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Sets the maximum number of connections in the pool. The default is
+     * {@link #DEFAULT_MAX_CONNECTIONS}.
+     *
+     * @param maxConnections a positive number.
+     */
+    public synchronized void setMaxConnections(int maxConnections) {
+        checkNotStarted();
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    public synchronized long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection may stay unused in the pool before it is
+     * closed. The default is {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}.
+     *
+     * @param idleTimeoutMillis a positive number of milliseconds.
+     */
+    public synchronized void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        checkNotStarted();
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("idleTimeoutMillis must be positive");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public synchronized int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * Sets how long to wait for a connection to be established, and for a
+     * connection from the pool when all are in use. The default is
+     * {@link #DEFAULT_CONNECT_TIMEOUT_MILLIS}.
+     *
+     * @param connectTimeoutMillis milliseconds, or 0 to wait indefinitely.
+     */
+    public synchronized void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        checkNotStarted();
+        if (connectTimeoutMillis < 0) {
+            throw new IllegalArgumentException("connectTimeoutMillis cannot be negative");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public synchronized int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * Sets how long to wait for data on a connection (<code>SO_TIMEOUT</code>).
+     * The default is {@link #DEFAULT_SOCKET_TIMEOUT_MILLIS}.
+     *
+     * @param socketTimeoutMillis milliseconds, or 0 to wait indefinitely.
+     */
+    public synchronized void setSocketTimeoutMillis(int socketTimeoutMillis) {
+        checkNotStarted();
+        if (socketTimeoutMillis < 0) {
+            throw new IllegalArgumentException("socketTimeoutMillis cannot be negative");
+        }
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    public synchronized int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Sets the socket receive buffer size (<code>SO_RCVBUF</code>). Larger
+     * buffers help large downloads over links with a high bandwidth-delay
+     * product.
+     *
+     * @param receiveBufferSize bytes, or 0 for the system default, which is
+     * the default.
+     */
+    public synchronized void setReceiveBufferSize(int receiveBufferSize) {
+        checkNotStarted();
+        if (receiveBufferSize < 0) {
+            throw new IllegalArgumentException("receiveBufferSize cannot be negative");
+        }
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public synchronized int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * Sets the socket send buffer size (<code>SO_SNDBUF</code>). Larger
+     * buffers help large uploads over links with a high bandwidth-delay
+     * product.
+     *
+     * @param sendBufferSize bytes, or 0 for the system default, which is the
+     * default.
+     */
+    public synchronized void setSendBufferSize(int sendBufferSize) {
+        checkNotStarted();
+        if (sendBufferSize < 0) {
+            throw new IllegalArgumentException("sendBufferSize cannot be negative");
+        }
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public synchronized boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * Sets whether to disable Nagle's algorithm (<code>TCP_NODELAY</code>).
+     * Enabled by default.
+     *
+     * @param tcpNoDelay whether to send small packets without delay.
+     */
+    public synchronized void setTcpNoDelay(boolean tcpNoDelay) {
+        checkNotStarted();
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        RequestBuilder builder = RequestBuilder.create(request.getMethod())
+                .setUri(request.getUri());
+        for (Map.Entry<String, List<String>> me : request.getHeaders().entrySet()) {
+            String name = me.getKey();
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    || "Transfer-Encoding".equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (String value : me.getValue()) {
+                builder.addHeader(name, value);
+            }
+        }
+        InputStream entity = request.getEntity();
+        if (entity != null) {
+            builder.setEntity(new InputStreamEntity(entity, request.getContentLength()));
+        }
+        CloseableHttpResponse response = httpClient().execute(builder.build());
+        InBoundHeaders headers = new InBoundHeaders();
+        for (Header header : response.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        HttpEntity responseEntity = response.getEntity();
+        InputStream content = responseEntity != null ? responseEntity.getContent() : null;
+        if (content == null) {
+            response.close();
+            return new TransportResponse(response.getStatusLine().getStatusCode(), headers, null);
+        }
+        return new TransportResponse(response.getStatusLine().getStatusCode(), headers,
+                new FilterInputStream(content) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Closes the pooled connections. The transport cannot be used afterward.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        if (this.httpClient != null) {
+            this.httpClient.close();
+        }
+    }
+
+    private CloseableHttpClient httpClient() {
+        CloseableHttpClient result = this.httpClient;
+        if (result != null) {
+            return result;
+        }
+        return createHttpClient();
+    }
+
+    private synchronized CloseableHttpClient createHttpClient() {
+        if (this.closed) {
+            throw new IllegalStateException("transport is closed");
+        }
+        if (this.httpClient == null) {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(this.maxConnections);
+            connectionManager.setDefaultMaxPerRoute(this.maxConnectionsPerRoute);
+            connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+            connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                    .setTcpNoDelay(this.tcpNoDelay)
+                    .setSoKeepAlive(true)
+                    .setSoTimeout(this.socketTimeoutMillis)
+                    .setRcvBufSize(this.receiveBufferSize)
+                    .setSndBufSize(this.sendBufferSize)
+                    .build());
+            this.httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(this.connectTimeoutMillis)
+                            .setConnectionRequestTimeout(this.connectTimeoutMillis)
+                            .setSocketTimeout(this.socketTimeoutMillis)
+                            .build())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(this.idleTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .disableContentCompression()
+                    .disableAutomaticRetries()
+                    .build();
+        }
+        return this.httpClient;
+    }
+
+    private void checkNotStarted() {
+        if (this.httpClient != null || this.closed) {
+            throw new IllegalStateException("transport has already been used");
+        }
+    }
+}
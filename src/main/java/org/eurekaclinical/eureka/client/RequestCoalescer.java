@@ -0,0 +1,167 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Shares one in-flight fetch among concurrent callers that ask for the same
+ * key. The first caller fetches; callers that arrive while it is fetching
+ * wait for and receive a copy of its result, or its exception. The copies
+ * are made by the fetching caller before it returns, so that no result is
+ * shared between callers. Once the fetch completes, the next caller fetches
+ * again, so nothing is cached.
+ */
+final class RequestCoalescer {
+
+    /**
+     * Fetches a result.
+     */
+    interface Fetch<T> {
+
+        T fetch() throws ClientException;
+    }
+
+    /**
+     * Copies a result for a waiting caller.
+     */
+    interface Copier<T> {
+
+        T copy(T value) throws ClientException;
+    }
+
+    /**
+     * A fetch in flight and the callers waiting for it.
+     */
+    private static final class InFlight {
+
+        private final List<CompletableFuture<Object>> waiters = new ArrayList<>();
+        private boolean closed;
+
+        /**
+         * Registers a waiting caller.
+         *
+         * @return the future that will receive the caller's copy of the
+         * result, or <code>null</code> if the fetch has already completed.
+         */
+        synchronized CompletableFuture<Object> join() {
+            if (this.closed) {
+                return null;
+            }
+            CompletableFuture<Object> waiter = new CompletableFuture<>();
+            this.waiters.add(waiter);
+            return waiter;
+        }
+
+        /**
+         * Stops registering waiting callers.
+         *
+         * @return the callers that are waiting.
+         */
+        synchronized List<CompletableFuture<Object>> close() {
+            this.closed = true;
+            return this.waiters;
+        }
+    }
+
+    private final ConcurrentMap<String, InFlight> inFlight;
+    private final LongAdder coalesced;
+
+    RequestCoalescer() {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.coalesced = new LongAdder();
+    }
+
+    /**
+     * Gets how many callers have received another caller's result instead
+     * of fetching their own.
+     *
+     * @return the number of callers.
+     */
+    long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    /**
+     * Fetches a result, or waits for a copy of the result of the fetch with
+     * the same key that is in flight.
+     *
+     * @param <T> the result type.
+     * @param key identifies the request.
+     * @param fetch fetches the result if no fetch is in flight.
+     * @param copier copies the result for each caller that waited for it.
+     * @return the result, or a copy of it.
+     */
+    <T> T fetch(String key, Fetch<T> fetch, Copier<T> copier) throws ClientException {
+        InFlight mine = new InFlight();
+        InFlight existing;
+        while ((existing = this.inFlight.putIfAbsent(key, mine)) != null) {
+            CompletableFuture<Object> waiter = existing.join();
+            if (waiter != null) {
+                this.coalesced.increment();
+                @SuppressWarnings("unchecked")
+                T result = (T) await(waiter);
+                return result;
+            }
+        }
+        T value;
+        try {
+            value = fetch.fetch();
+        } catch (ClientException | RuntimeException | Error ex) {
+            this.inFlight.remove(key, mine);
+            for (CompletableFuture<Object> waiter : mine.close()) {
+                waiter.completeExceptionally(ex);
+            }
+            throw ex;
+        }
+        this.inFlight.remove(key, mine);
+        for (CompletableFuture<Object> waiter : mine.close()) {
+            try {
+                waiter.complete(copier.copy(value));
+            } catch (ClientException | RuntimeException ex) {
+                waiter.completeExceptionally(ex);
+            }
+        }
+        return value;
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws ClientException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            throw ClientExceptions.interrupted(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ClientExceptions.toClientException(cause);
+        }
+    }
+}
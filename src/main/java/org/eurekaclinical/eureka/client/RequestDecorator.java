@@ -0,0 +1,46 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+
+/**
+ * Adds to the requests that {@link EurekaClient} sends with an
+ * {@link EurekaTransport} what the filters of the Jersey client that it
+ * inherits would otherwise add, typically authentication, such as an
+ * <code>Authorization</code> header or a session cookie. Requests that the
+ * inherited client sends pass through its filters and are not decorated.
+ * Implementations must be thread-safe.
+ */
+public interface RequestDecorator {
+
+    /**
+     * Modifies a request before it is sent, for example by adding headers
+     * to {@link TransportRequest#getHeaders()}. The request's headers belong
+     * to this request alone and may be modified freely. Called again for
+     * each retry or hedge of the request.
+     *
+     * @param request the request. Never <code>null</code>.
+     * @throws IOException if the request could not be decorated, for
+     * example because credentials could not be obtained. The request fails
+     * as if it could not be sent.
+     */
+    void decorate(TransportRequest request) throws IOException;
+}
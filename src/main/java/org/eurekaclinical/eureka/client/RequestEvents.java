@@ -0,0 +1,85 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Creates the Flight Recorder events that {@link RequestMeter} commits. The
+ * implementation uses the <code>jdk.jfr</code> API, so it is in a separate
+ * source directory that is compiled only on JDK 11 and later, and it is
+ * loaded by name. Where it is missing, because the client was built on an
+ * earlier JDK or runs on a JVM without Flight Recorder, no events are
+ * emitted.
+ */
+interface RequestEvents {
+
+    /**
+     * Loads the implementation.
+     *
+     * @return the implementation, or <code>null</code> if it or the Flight
+     * Recorder API is unavailable.
+     */
+    static RequestEvents load() {
+        try {
+            return (RequestEvents) Class.forName("org.eurekaclinical.eureka.client.FlightRecorderRequestEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets whether a recording has enabled the event. Allocates nothing.
+     *
+     * @return whether to create events.
+     */
+    boolean isEnabled();
+
+    /**
+     * Creates an event and starts its timing.
+     *
+     * @return the event.
+     */
+    Event begin();
+
+    /**
+     * An event for one request.
+     */
+    interface Event {
+
+        /**
+         * Ends the event's timing.
+         */
+        void end();
+
+        /**
+         * Gets whether the event passes the recording's thresholds and
+         * should be committed.
+         *
+         * @return whether to commit the event.
+         */
+        boolean shouldCommit();
+
+        /**
+         * Sets the event's fields and commits it.
+         */
+        void commit(String method, String route, int status, long requestBytes, long responseBytes,
+                long responseTime, long networkReadTime, long deserializationTime, int keyCount);
+    }
+}
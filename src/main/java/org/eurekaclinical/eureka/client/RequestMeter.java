@@ -0,0 +1,298 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures one request: the time until its response arrives and until the
+ * response is closed, and the bytes sent and received. The measurements are
+ * reported once, when the response is closed or the request fails, and are
+ * also committed as a Flight Recorder event if a recording has enabled it;
+ * see {@link RequestEvents}.
+ */
+final class RequestMeter {
+
+    /**
+     * Reads an object from a response body.
+     */
+    interface Deserializer<T> {
+
+        T deserialize(InputStream in) throws IOException;
+    }
+
+    /**
+     * The value of a time in a Flight Recorder event that was not measured,
+     * which the <code>jfr</code> tool shows as N/A.
+     */
+    private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestMeter.class);
+
+    /**
+     * Creates Flight Recorder events, or <code>null</code> if they are not
+     * supported.
+     */
+    private static final RequestEvents EVENTS = RequestEvents.load();
+
+    private final String method;
+    private final String route;
+    private final ClientMetricsRecorder recorder;
+    private final ClientMetricsListener listener;
+    private final long start;
+    private final AtomicBoolean finished;
+    private volatile long responseNanos;
+    private volatile long requestBytes;
+    private volatile long responseBytes;
+    private volatile long networkReadNanos;
+    private volatile boolean responseMetered;
+    private volatile long deserializationNanos = NOT_MEASURED;
+    private volatile int keyCount;
+    private final RequestEvents.Event event;
+
+    /**
+     * Starts measuring a request.
+     *
+     * @param method the HTTP method.
+     * @param route the route template.
+     * @param recorder the recorder to report to.
+     * @param listener another listener to report to, or <code>null</code>.
+     */
+    RequestMeter(String method, String route, ClientMetricsRecorder recorder, ClientMetricsListener listener) {
+        this.method = method;
+        this.route = route;
+        this.recorder = recorder;
+        this.listener = listener;
+        this.start = System.nanoTime();
+        this.finished = new AtomicBoolean();
+        this.event = startEvent();
+    }
+
+    /**
+     * Starts a Flight Recorder event for the request.
+     *
+     * @return the event, or <code>null</code> if events are not supported or
+     * no recording has enabled it.
+     */
+    private static RequestEvents.Event startEvent() {
+        if (EVENTS == null || !EVENTS.isEnabled()) {
+            return null;
+        }
+        return EVENTS.begin();
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getRoute() {
+        return route;
+    }
+
+    long getRequestBytes() {
+        return requestBytes;
+    }
+
+    long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Sets the number of phenotype keys that a batched lookup requests.
+     *
+     * @param keyCount the number of keys.
+     */
+    void setKeyCount(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * Wraps a request body so that the bytes read from it are counted.
+     *
+     * @param entity the request body.
+     * @return the wrapped body.
+     */
+    InputStream countRequest(InputStream entity) {
+        return new FilterInputStream(entity) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    requestBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    requestBytes += n;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Notes that a response has arrived and returns a response that counts
+     * the bytes read from its body and reports the measurements when it is
+     * closed. If a Flight Recorder event is being recorded, the response
+     * also measures the time spent waiting for its body to arrive.
+     *
+     * @param response the response.
+     * @return the wrapped response.
+     */
+    TransportResponse responseReceived(TransportResponse response) {
+        this.responseNanos = System.nanoTime() - this.start;
+        this.responseMetered = true;
+        int status = response.getStatus();
+        return new TransportResponse(status, response.getHeaders(),
+                new FilterInputStream(response.getEntityInputStream()) {
+            @Override
+            public int read() throws IOException {
+                long readStart = event != null ? System.nanoTime() : 0L;
+                int b = super.read();
+                if (b != -1) {
+                    responseBytes++;
+                }
+                if (event != null) {
+                    networkReadNanos += System.nanoTime() - readStart;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long readStart = event != null ? System.nanoTime() : 0L;
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    responseBytes += n;
+                }
+                if (event != null) {
+                    networkReadNanos += System.nanoTime() - readStart;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long readStart = event != null ? System.nanoTime() : 0L;
+                long skipped = super.skip(n);
+                responseBytes += skipped;
+                if (event != null) {
+                    networkReadNanos += System.nanoTime() - readStart;
+                }
+                return skipped;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    finish(status);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deserializes an object from the body of the response returned by
+     * {@link #responseReceived(TransportResponse)}. If a Flight Recorder
+     * event is being recorded, the time spent, less the time spent waiting
+     * for the body to arrive, is recorded as the request's deserialization
+     * time. The deserializer cannot close the body then, so that the request
+     * is not reported until the time has been recorded.
+     *
+     * @param in the response body.
+     * @param deserializer reads the object.
+     * @return the object.
+     * @throws IOException if reading the object failed.
+     */
+    <T> T deserialize(InputStream in, Deserializer<T> deserializer) throws IOException {
+        if (this.event == null) {
+            return deserializer.deserialize(in);
+        }
+        long deserializeStart = System.nanoTime();
+        long networkReadStart = this.networkReadNanos;
+        try {
+            return deserializer.deserialize(new FilterInputStream(in) {
+                @Override
+                public void close() {
+                }
+            });
+        } finally {
+            this.deserializationNanos = System.nanoTime() - deserializeStart
+                    - (this.networkReadNanos - networkReadStart);
+        }
+    }
+
+    /**
+     * Reports a request that failed, or that returned without a response
+     * passing through {@link #responseReceived(TransportResponse)}. Does
+     * nothing if the request has already been reported.
+     *
+     * @param status the response's HTTP status code, or 0 if no response
+     * was received.
+     */
+    void completed(int status) {
+        if (this.finished.get()) {
+            return;
+        }
+        this.responseNanos = System.nanoTime() - this.start;
+        finish(status);
+    }
+
+    private void finish(int status) {
+        if (!this.finished.compareAndSet(false, true)) {
+            return;
+        }
+        long duration = System.nanoTime() - this.start;
+        this.recorder.requestCompleted(this.method, this.route, status,
+                this.responseNanos, duration, this.requestBytes, this.responseBytes);
+        if (this.listener != null) {
+            try {
+                this.listener.requestCompleted(this.method, this.route, status,
+                        this.responseNanos, duration, this.requestBytes, this.responseBytes);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Metrics listener failed", ex);
+            }
+        }
+        if (this.event != null) {
+            commitEvent(status, duration);
+        }
+    }
+
+    private void commitEvent(int status, long duration) {
+        RequestEvents.Event e = this.event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.commit(this.method, this.route, status, this.requestBytes, this.responseBytes,
+                    this.responseNanos, this.responseMetered ? this.networkReadNanos : NOT_MEASURED,
+                    this.deserializationNanos, this.keyCount);
+        }
+    }
+}
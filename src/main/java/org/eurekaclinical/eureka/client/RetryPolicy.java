@@ -0,0 +1,233 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How {@link EurekaClient} retries idempotent requests that fail
+ * transiently: GET requests and system phenotype lookups that fail to get a
+ * response or get a <code>429</code>, <code>502</code>, <code>503</code> or
+ * <code>504</code> status. Before each retry the client waits a random time
+ * between zero and an exponentially growing backoff, so that clients that
+ * failed together do not retry together.
+ *
+ * Retries are limited by a budget, so that an outage does not multiply the
+ * load on the service. Each request adds a fraction of a retry to the
+ * budget, each retry spends a whole one, and the budget holds at most
+ * {@link #BUDGET_CAPACITY} retries. When the budget is spent, failures are
+ * returned to the caller without retrying. A policy's budget is shared by
+ * every client that uses it.
+ */
+public final class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5000;
+
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;
+
+    /**
+     * The most retries that the budget can hold, which is also how many it
+     * holds initially.
+     */
+    public static final int BUDGET_CAPACITY = 10;
+
+    /**
+     * The budget is kept in thousandths of a retry.
+     */
+    private static final long RETRY_COST = 1000;
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double budgetRatio;
+    private final long deposit;
+    private final AtomicLong budget;
+    private final LongAdder retries;
+    private final LongAdder budgetExhaustions;
+
+    /**
+     * Creates a policy with the default settings: up to
+     * {@link #DEFAULT_MAX_ATTEMPTS} attempts, backoff from
+     * {@link #DEFAULT_INITIAL_BACKOFF_MILLIS} to
+     * {@link #DEFAULT_MAX_BACKOFF_MILLIS} milliseconds, and a budget of
+     * {@link #DEFAULT_BUDGET_RATIO} retries per request.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS,
+                TimeUnit.MILLISECONDS, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param maxAttempts the most times to send a request, including the
+     * first. Must be positive.
+     * @param initialBackoff the backoff before the first retry, which doubles
+     * with each further retry. Must be positive.
+     * @param maxBackoff the most that the backoff grows to. Cannot be less
+     * than the initial backoff.
+     * @param unit the backoffs' unit. Cannot be <code>null</code>.
+     * @param budgetRatio the fraction of a retry that each request adds to
+     * the budget, between 0 and 1.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit, double budgetRatio) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        if (initialBackoff < 1) {
+            throw new IllegalArgumentException("initialBackoff must be positive");
+        }
+        if (maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("maxBackoff cannot be less than initialBackoff");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        if (!(budgetRatio >= 0 && budgetRatio <= 1)) {
+            throw new IllegalArgumentException("budgetRatio must be between 0 and 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = unit.toNanos(initialBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.budgetRatio = budgetRatio;
+        this.deposit = Math.round(budgetRatio * RETRY_COST);
+        this.budget = new AtomicLong(BUDGET_CAPACITY * RETRY_COST);
+        this.retries = new LongAdder();
+        this.budgetExhaustions = new LongAdder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoff(TimeUnit unit) {
+        return unit.convert(initialBackoffNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxBackoff(TimeUnit unit) {
+        return unit.convert(maxBackoffNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * Gets how many retries the budget currently holds.
+     *
+     * @return the number of retries, which may be fractional.
+     */
+    public double getBudget() {
+        return (double) this.budget.get() / RETRY_COST;
+    }
+
+    /**
+     * Gets how many retries have been made under this policy.
+     *
+     * @return the number of retries.
+     */
+    public long getRetryCount() {
+        return this.retries.sum();
+    }
+
+    /**
+     * Gets how many times a request that could have been retried was not,
+     * because the budget was spent.
+     *
+     * @return the number of times.
+     */
+    public long getBudgetExhaustedCount() {
+        return this.budgetExhaustions.sum();
+    }
+
+    /**
+     * Adds a request's share to the budget.
+     */
+    void requestStarted() {
+        long capacity = BUDGET_CAPACITY * RETRY_COST;
+        long current;
+        do {
+            current = this.budget.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!this.budget.compareAndSet(current, Math.min(capacity, current + this.deposit)));
+    }
+
+    /**
+     * Spends a retry from the budget if it holds one.
+     *
+     * @return whether the retry may be made.
+     */
+    boolean tryRetry() {
+        long current;
+        do {
+            current = this.budget.get();
+            if (current < RETRY_COST) {
+                this.budgetExhaustions.increment();
+                return false;
+            }
+        } while (!this.budget.compareAndSet(current, current - RETRY_COST));
+        this.retries.increment();
+        return true;
+    }
+
+    /**
+     * Picks how long to wait before a retry.
+     *
+     * @param retry the number of the retry, starting at 1.
+     * @return a random time in nanoseconds, between zero and the backoff for
+     * the retry.
+     */
+    long backoffNanos(int retry) {
+        long backoff = this.initialBackoffNanos;
+        for (int i = 1; i < retry && backoff < this.maxBackoffNanos; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, this.maxBackoffNanos);
+        return ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * Gets whether a response status indicates a transient failure that is
+     * worth retrying.
+     *
+     * @param status an HTTP status code.
+     * @return whether to retry.
+     */
+    static boolean isRetryableStatus(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" + "maxAttempts=" + maxAttempts
+                + ", initialBackoffNanos=" + initialBackoffNanos
+                + ", maxBackoffNanos=" + maxBackoffNanos
+                + ", budgetRatio=" + budgetRatio + '}';
+    }
+}
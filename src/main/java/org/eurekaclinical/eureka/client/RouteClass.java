@@ -0,0 +1,38 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * The kinds of traffic that {@link EurekaClient} keeps apart with its
+ * {@link Bulkhead bulkheads}. Every route belongs to one class, which is
+ * determined from its template.
+ */
+public enum RouteClass {
+    /**
+     * Routes that move files: uploads and output downloads. Their requests
+     * are large and long.
+     */
+    TRANSFER,
+    /**
+     * All other routes, such as jobs, job modes, destinations and
+     * phenotypes. Their requests are small and quick.
+     */
+    METADATA
+}
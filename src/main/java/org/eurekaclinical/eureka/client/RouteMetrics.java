@@ -0,0 +1,139 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics that a {@link ClientMetricsRecorder} keeps for one route
+ * and HTTP method. They are updated without locking and may be read at any
+ * time.
+ */
+public final class RouteMetrics {
+
+    private final String method;
+    private final String route;
+    private final LongAdder requests;
+    private final ConcurrentMap<Integer, LongAdder> statuses;
+    private final LongAdder requestBytes;
+    private final LongAdder responseBytes;
+    private final LatencyHistogram responseTime;
+    private final LatencyHistogram duration;
+
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        this.requests = new LongAdder();
+        this.statuses = new ConcurrentHashMap<>();
+        this.requestBytes = new LongAdder();
+        this.responseBytes = new LongAdder();
+        this.responseTime = new LatencyHistogram();
+        this.duration = new LatencyHistogram();
+    }
+
+    void record(int status, long responseNanos, long durationNanos, long requestBytes, long responseBytes) {
+        this.requests.increment();
+        LongAdder statusCount = this.statuses.get(status);
+        if (statusCount == null) {
+            statusCount = this.statuses.computeIfAbsent(status, s -> new LongAdder());
+        }
+        statusCount.increment();
+        this.requestBytes.add(requestBytes);
+        this.responseBytes.add(responseBytes);
+        this.responseTime.record(responseNanos);
+        this.duration.record(durationNanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public long getRequestCount() {
+        return this.requests.sum();
+    }
+
+    /**
+     * Gets the number of responses with each HTTP status code. Requests that
+     * failed without a response are counted under status 0.
+     *
+     * @return a snapshot of the counts by status code, in ascending order.
+     */
+    public SortedMap<Integer, Long> getStatusCounts() {
+        SortedMap<Integer, Long> result = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> me : this.statuses.entrySet()) {
+            result.put(me.getKey(), me.getValue().sum());
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Gets the number of requests that failed without a response or with a
+     * 5xx status.
+     *
+     * @return the count.
+     */
+    public long getErrorCount() {
+        long result = 0;
+        for (Map.Entry<Integer, LongAdder> me : this.statuses.entrySet()) {
+            int status = me.getKey();
+            if (status == 0 || status >= 500) {
+                result += me.getValue().sum();
+            }
+        }
+        return result;
+    }
+
+    public long getRequestBytes() {
+        return this.requestBytes.sum();
+    }
+
+    public long getResponseBytes() {
+        return this.responseBytes.sum();
+    }
+
+    /**
+     * Gets the distribution of the time until response headers arrived.
+     *
+     * @return the histogram.
+     */
+    public LatencyHistogram getResponseTime() {
+        return responseTime;
+    }
+
+    /**
+     * Gets the distribution of the time until responses were closed,
+     * including reading their bodies.
+     *
+     * @return the histogram.
+     */
+    public LatencyHistogram getDuration() {
+        return duration;
+    }
+}
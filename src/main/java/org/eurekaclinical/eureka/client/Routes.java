@@ -0,0 +1,130 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Maps request paths to the route templates that they were expanded from,
+ * such as <code>/api/protected/jobs/{id}</code>, so that requests can be
+ * grouped by endpoint rather than by URL, and classifies routes by the kind
+ * of traffic that they carry.
+ */
+final class Routes {
+
+    /**
+     * The route of paths that match no known template.
+     */
+    static final String OTHER = "{other}";
+
+    private static final String[][] TEMPLATES = {
+        split("/api/protected/users/{id}"),
+        split("/api/protected/jobs"),
+        split("/api/protected/jobs/latest"),
+        split("/api/protected/jobs/{id}"),
+        split("/api/protected/jobs/{id}/events"),
+        split("/api/protected/jobs/{id}/events/{eventId}"),
+        split("/api/protected/jobs/{id}/stats"),
+        split("/api/protected/jobs/{id}/stats/{propId}"),
+        split("/api/protected/jobmodes"),
+        split("/api/protected/jobmodes/{id}"),
+        split("/api/protected/jobmodes/byname/{name}"),
+        split("/api/protected/phenotypes"),
+        split("/api/protected/phenotypes/{key}"),
+        split("/api/protected/concepts"),
+        split("/api/protected/concepts/search/{searchKey}"),
+        split("/api/protected/concepts/propsearch/{searchKey}"),
+        split("/api/protected/sourceconfigs"),
+        split("/api/protected/sourceconfigs/{id}"),
+        split("/api/protected/sourceconfigs/parameters/list"),
+        split("/api/protected/destinations"),
+        split("/api/protected/destinations/{id}"),
+        split("/api/protected/file/upload/{sourceId}/{fileTypeId}"),
+        split("/api/protected/output/{destinationId}")
+    };
+
+    /**
+     * The routes that carry files rather than metadata.
+     */
+    private static final Set<String> TRANSFER_ROUTES = new HashSet<>(Arrays.asList(
+            "/api/protected/file/upload/{sourceId}/{fileTypeId}",
+            "/api/protected/output/{destinationId}"));
+
+    private Routes() {
+    }
+
+    /**
+     * Gets the class of a route.
+     *
+     * @param route a route template, as returned by {@link #template}.
+     * @return {@link RouteClass#TRANSFER} for file uploads and output
+     * downloads, and {@link RouteClass#METADATA} for everything else.
+     */
+    static RouteClass routeClass(String route) {
+        return TRANSFER_ROUTES.contains(route) ? RouteClass.TRANSFER : RouteClass.METADATA;
+    }
+
+    /**
+     * Gets the template of a path. Among matching templates, the one with
+     * the most literal segments wins, so <code>/api/protected/jobs/latest</code>
+     * is not mistaken for a job id.
+     *
+     * @param path a request path, without a query string.
+     * @return the template, or {@link #OTHER} if none matches.
+     */
+    static String template(String path) {
+        String[] segments = split(path);
+        String[] best = null;
+        int bestLiterals = -1;
+        for (String[] template : TEMPLATES) {
+            if (template.length != segments.length) {
+                continue;
+            }
+            int literals = 0;
+            boolean matches = true;
+            for (int i = 0; i < template.length && matches; i++) {
+                if (!isVariable(template[i])) {
+                    matches = template[i].equals(segments[i]);
+                    literals++;
+                }
+            }
+            if (matches && literals > bestLiterals) {
+                best = template;
+                bestLiterals = literals;
+            }
+        }
+        return best != null ? "/" + String.join("/", best) : OTHER;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.startsWith("{");
+    }
+
+    private static String[] split(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") && path.length() > start ? path.length() - 1 : path.length();
+        if (start >= end) {
+            return new String[0];
+        }
+        return path.substring(start, end).split("/");
+    }
+}
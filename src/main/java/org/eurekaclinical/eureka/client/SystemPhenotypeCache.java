@@ -0,0 +1,361 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eurekaclinical.eureka.client.comm.SystemPhenotype;
+
+/**
+ * A bounded, in-memory cache of system phenotypes and system phenotype
+ * search results. Entries expire a fixed time after they are stored, and
+ * when the cache is full, the least recently used entry is evicted.
+ * Phenotypes are cached by key and by whether they are summarized. A full
+ * phenotype also satisfies a lookup for the summarized phenotype with the
+ * same key.
+ *
+ * Install a cache on a client with
+ * {@link EurekaClient#setSystemPhenotypeCache(SystemPhenotypeCache) }. The
+ * cache holds phenotypes in serialized form and returns a new copy from
+ * every lookup, so callers may modify what they get, and modifying a
+ * phenotype after storing it does not change the cached one. This class is
+ * thread-safe.
+ */
+public class SystemPhenotypeCache {
+
+    /**
+     * The default maximum number of entries.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * The default time in minutes after which an entry expires.
+     */
+    public static final long DEFAULT_TTL_MINUTES = 60;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final class CacheKey {
+
+        private final String key;
+        private final boolean summarized;
+        private final boolean search;
+
+        CacheKey(String key, boolean summarized, boolean search) {
+            this.key = key;
+            this.summarized = summarized;
+            this.search = search;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = this.key.hashCode();
+            hash = 31 * hash + (this.summarized ? 1 : 0);
+            hash = 31 * hash + (this.search ? 1 : 0);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return this.summarized == other.summarized
+                    && this.search == other.search
+                    && this.key.equals(other.key);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+        private final long expiresAt;
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<CacheKey, Entry> entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder expirations;
+
+    /**
+     * Creates a cache with the default maximum size and time to live.
+     */
+    public SystemPhenotypeCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of entries. Must be positive.
+     * @param ttl how long after being stored an entry expires. Must be
+     * positive.
+     * @param unit the time to live's unit. Cannot be <code>null</code>.
+     */
+    public SystemPhenotypeCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (ttl < 1) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.expirations = new LongAdder();
+        this.entries = new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() > SystemPhenotypeCache.this.maxSize) {
+                    SystemPhenotypeCache.this.evictions.increment();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtl(TimeUnit unit) {
+        return unit.convert(this.ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets a cached phenotype. A lookup for a summarized phenotype is
+     * satisfied by a cached full phenotype if there is no cached summarized
+     * one.
+     *
+     * @param key the phenotype's key. Cannot be <code>null</code>.
+     * @param summarized whether the summarized phenotype is wanted.
+     * @return a copy of the phenotype, or <code>null</code> if it is not
+     * cached.
+     */
+    public SystemPhenotype get(String key, boolean summarized) {
+        long now = System.nanoTime();
+        byte[] result;
+        synchronized (this.entries) {
+            result = lookup(new CacheKey(key, false, false), now);
+            if (result == null && summarized) {
+                result = lookup(new CacheKey(key, true, false), now);
+            }
+        }
+        count(result);
+        return result != null ? read(result, SystemPhenotype.class) : null;
+    }
+
+    /**
+     * Stores a phenotype. Storing a full phenotype replaces any cached
+     * summarized phenotype with the same key.
+     *
+     * @param phenotype the phenotype. Cannot be <code>null</code>.
+     * @param summarized whether the phenotype was retrieved summarized.
+     */
+    public void put(SystemPhenotype phenotype, boolean summarized) {
+        Entry entry = new Entry(write(phenotype), System.nanoTime() + this.ttlNanos);
+        synchronized (this.entries) {
+            this.entries.put(new CacheKey(phenotype.getKey(), summarized, false), entry);
+            if (!summarized) {
+                this.entries.remove(new CacheKey(phenotype.getKey(), true, false));
+            }
+        }
+    }
+
+    /**
+     * Gets cached search results.
+     *
+     * @param searchKey the search key. Cannot be <code>null</code>.
+     * @return a new list with copies of the search results, or
+     * <code>null</code> if they are not cached.
+     */
+    public List<SystemPhenotype> getSearchResults(String searchKey) {
+        byte[] result;
+        synchronized (this.entries) {
+            result = lookup(new CacheKey(searchKey, false, true), System.nanoTime());
+        }
+        count(result);
+        return result != null ? new ArrayList<>(Arrays.asList(read(result, SystemPhenotype[].class))) : null;
+    }
+
+    /**
+     * Stores search results. The phenotypes in the results are also cached
+     * individually.
+     *
+     * @param searchKey the search key. Cannot be <code>null</code>.
+     * @param searchResults the search results. Cannot be <code>null</code>.
+     * @param summarized whether the search retrieved summarized phenotypes.
+     */
+    public void putSearchResults(String searchKey, List<SystemPhenotype> searchResults, boolean summarized) {
+        Entry entry = new Entry(write(searchResults.toArray(new SystemPhenotype[searchResults.size()])),
+                System.nanoTime() + this.ttlNanos);
+        synchronized (this.entries) {
+            this.entries.put(new CacheKey(searchKey, false, true), entry);
+        }
+        for (SystemPhenotype phenotype : searchResults) {
+            put(phenotype, summarized);
+        }
+    }
+
+    /**
+     * Removes the cached summarized and full phenotypes with the given key.
+     *
+     * @param key a phenotype key. Cannot be <code>null</code>.
+     */
+    public void invalidate(String key) {
+        synchronized (this.entries) {
+            this.entries.remove(new CacheKey(key, false, false));
+            this.entries.remove(new CacheKey(key, true, false));
+        }
+    }
+
+    /**
+     * Removes all entries. The counters are not reset.
+     */
+    public void invalidateAll() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Removes expired entries. Expired entries are otherwise removed when
+     * they are looked up or evicted.
+     */
+    public void removeExpired() {
+        long now = System.nanoTime();
+        synchronized (this.entries) {
+            for (Iterator<Entry> itr = this.entries.values().iterator(); itr.hasNext();) {
+                if (now - itr.next().expiresAt >= 0) {
+                    itr.remove();
+                    this.expirations.increment();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the number of entries that were removed to make room for others.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Gets the number of entries that were removed because they expired.
+     *
+     * @return the number of expirations.
+     */
+    public long getExpirationCount() {
+        return this.expirations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SystemPhenotypeCache{" + "maxSize=" + maxSize + ", size=" + size()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount()
+                + ", expirations=" + getExpirationCount() + '}';
+    }
+
+    private static byte[] write(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static <T> T read(byte[] value, Class<T> cls) {
+        try {
+            return MAPPER.readValue(new ByteArrayInputStream(value), cls);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] lookup(CacheKey cacheKey, long now) {
+        Entry entry = this.entries.get(cacheKey);
+        if (entry == null) {
+            return null;
+        } else if (now - entry.expiresAt >= 0) {
+            this.entries.remove(cacheKey);
+            this.expirations.increment();
+            return null;
+        } else {
+            return entry.value;
+        }
+    }
+
+    private void count(Object result) {
+        if (result != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.eurekaclinical.eureka.client.comm.SystemPhenotype;
+import org.eurekaclinical.standardapis.exception.HttpStatusException;
+
+/**
+ * Coalesces concurrent single-key system phenotype lookups into batched
+ * requests. Lookups are collected until a short window has passed since the
+ * first lookup of a batch or the batch reaches its maximum size, whichever
+ * comes first. The batch is then retrieved with one system phenotype
+ * request (or several, if it is larger than the client's
+ * {@link EurekaClient#getSystemPhenotypeBatchSize() batch size}), and each
+ * lookup's future is completed with its own phenotype. Concurrent
+ * lookups of the same key share a request, and each gets its own copy of
+ * the phenotype. Summarized and full lookups are batched separately.
+ *
+ * A loader may be installed on its client with
+ * {@link EurekaClient#setSystemPhenotypeLoader(SystemPhenotypeLoader) } so
+ * that {@link EurekaClient#getSystemPhenotype(java.lang.String, boolean) }
+ * uses it. Its windows are timed on a scheduler that all clients share.
+ * Close the loader when done with it to send any pending lookups.
+ */
+public class SystemPhenotypeLoader implements AutoCloseable {
+
+    /**
+     * The default time in milliseconds to wait for more lookups after the
+     * first lookup of a batch.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 5;
+
+    /**
+     * The default maximum number of keys in a batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private static final class Batch {
+
+        private final boolean summarize;
+        private final Map<String, List<CompletableFuture<SystemPhenotype>>> lookups;
+        private ScheduledFuture<?> timer;
+
+        Batch(boolean summarize) {
+            this.summarize = summarize;
+            this.lookups = new LinkedHashMap<>();
+        }
+    }
+
+    private final EurekaClient client;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Object lock;
+    private final Batch[] pending;
+    private boolean closed;
+
+    /**
+     * Creates a loader with the default window and maximum batch size.
+     *
+     * @param client the client with which to retrieve batches. Cannot be
+     * <code>null</code>.
+     */
+    public SystemPhenotypeLoader(EurekaClient client) {
+        this(client, DEFAULT_WINDOW_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param client the client with which to retrieve batches. Cannot be
+     * <code>null</code>.
+     * @param window how long to wait for more lookups after the first lookup
+     * of a batch. Cannot be negative.
+     * @param unit the window's unit. Cannot be <code>null</code>.
+     * @param maxBatchSize the maximum number of keys in a batch. Must be
+     * positive.
+     */
+    public SystemPhenotypeLoader(EurekaClient client, long window, TimeUnit unit, int maxBatchSize) {
+        if (client == null) {
+            throw new IllegalArgumentException("client cannot be null");
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("window cannot be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.client = client;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.lock = new Object();
+        this.pending = new Batch[2];
+    }
+
+    public EurekaClient getClient() {
+        return client;
+    }
+
+    /**
+     * Looks up a system phenotype. If the client has a
+     * {@link SystemPhenotypeCache} that holds the phenotype, the returned
+     * future is already complete.
+     *
+     * @param key the phenotype's key. Cannot be <code>null</code>.
+     * @param summarize whether to retrieve a summarized phenotype.
+     * @return a future for the phenotype. It fails with a
+     * {@link HttpStatusException} with status
+     * {@link Response.Status#NOT_FOUND} if there is no phenotype with the
+     * key, or with the {@link ClientException} with which the batch failed.
+     */
+    public CompletableFuture<SystemPhenotype> load(String key, boolean summarize) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        SystemPhenotypeCache cache = this.client.getSystemPhenotypeCache();
+        if (cache != null) {
+            SystemPhenotype cached = cache.get(key, summarize);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        return enqueue(key, summarize);
+    }
+
+    /**
+     * Looks up a system phenotype without consulting the client's cache, and
+     * waits for the result.
+     */
+    SystemPhenotype retrieve(String key, boolean summarize) throws ClientException {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        return ClientExceptions.getResult(enqueue(key, summarize));
+    }
+
+    private CompletableFuture<SystemPhenotype> enqueue(String key, boolean summarize) {
+        int index = summarize ? 1 : 0;
+        CompletableFuture<SystemPhenotype> lookup = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this.lock) {
+            if (this.closed) {
+                throw new IllegalStateException("loader is closed");
+            }
+            Batch batch = this.pending[index];
+            if (batch == null) {
+                Batch newBatch = new Batch(summarize);
+                newBatch.timer = ClientExecutors.scheduler().schedule(() -> flush(newBatch),
+                        this.windowNanos, TimeUnit.NANOSECONDS);
+                this.pending[index] = newBatch;
+                batch = newBatch;
+            }
+            batch.lookups.computeIfAbsent(key, k -> new ArrayList<>(1)).add(lookup);
+            if (batch.lookups.size() >= this.maxBatchSize) {
+                this.pending[index] = null;
+                full = batch;
+            }
+        }
+        if (full != null) {
+            full.timer.cancel(false);
+            dispatch(full);
+        }
+        return lookup;
+    }
+
+    /**
+     * Looks up a system phenotype and waits for the result.
+     *
+     * @param key the phenotype's key. Cannot be <code>null</code>.
+     * @param summarize whether to retrieve a summarized phenotype.
+     * @return the phenotype.
+     * @throws ClientException if the batch request failed.
+     * @throws HttpStatusException with status
+     * {@link Response.Status#NOT_FOUND} if there is no phenotype with the
+     * key.
+     */
+    public SystemPhenotype get(String key, boolean summarize) throws ClientException {
+        return ClientExceptions.getResult(load(key, summarize));
+    }
+
+    /**
+     * Sends any pending lookups. Lookups that are already pending complete
+     * normally.
+     */
+    @Override
+    public void close() {
+        List<Batch> batches = new ArrayList<>(2);
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            for (int i = 0; i < this.pending.length; i++) {
+                if (this.pending[i] != null) {
+                    batches.add(this.pending[i]);
+                    this.pending[i] = null;
+                }
+            }
+        }
+        for (Batch batch : batches) {
+            batch.timer.cancel(false);
+            dispatch(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        int index = batch.summarize ? 1 : 0;
+        synchronized (this.lock) {
+            if (this.pending[index] != batch) {
+                return;
+            }
+            this.pending[index] = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        try {
+            this.client.getExecutor().execute(() -> retrieveBatch(batch));
+        } catch (RejectedExecutionException ex) {
+            retrieveBatch(batch);
+        }
+    }
+
+    private void retrieveBatch(Batch batch) {
+        List<String> keys = new ArrayList<>(batch.lookups.keySet());
+        List<SystemPhenotype> phenotypes;
+        try {
+            phenotypes = this.client.retrieveSystemPhenotypes(keys, batch.summarize);
+        } catch (ClientException | RuntimeException ex) {
+            for (List<CompletableFuture<SystemPhenotype>> lookups : batch.lookups.values()) {
+                for (CompletableFuture<SystemPhenotype> lookup : lookups) {
+                    lookup.completeExceptionally(ex);
+                }
+            }
+            return;
+        }
+        for (SystemPhenotype phenotype : phenotypes) {
+            List<CompletableFuture<SystemPhenotype>> lookups = batch.lookups.get(phenotype.getKey());
+            if (lookups != null) {
+                complete(lookups, phenotype);
+            }
+        }
+        for (List<CompletableFuture<SystemPhenotype>> lookups : batch.lookups.values()) {
+            for (CompletableFuture<SystemPhenotype> lookup : lookups) {
+                if (!lookup.isDone()) {
+                    lookup.completeExceptionally(new HttpStatusException(Response.Status.NOT_FOUND));
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the lookups of a key, giving each lookup after the first its
+     * own copy of the phenotype so that callers do not share mutable
+     * objects.
+     */
+    private static void complete(List<CompletableFuture<SystemPhenotype>> lookups, SystemPhenotype phenotype) {
+        lookups.get(0).complete(phenotype);
+        for (int i = 1; i < lookups.size(); i++) {
+            CompletableFuture<SystemPhenotype> lookup = lookups.get(i);
+            try {
+                lookup.complete(EurekaClient.copyOf(phenotype, SystemPhenotype.class));
+            } catch (ClientException ex) {
+                lookup.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Receives progress notifications during an upload or download.
+ */
+public interface TransferListener {
+
+    /**
+     * Called periodically as bytes are transferred, and once more when the
+     * transfer completes.
+     *
+     * @param bytesTransferred the number of bytes transferred so far.
+     * @param totalBytes the total number of bytes to transfer, or -1 if
+     * unknown.
+     */
+    void progress(long bytesTransferred, long totalBytes);
+}
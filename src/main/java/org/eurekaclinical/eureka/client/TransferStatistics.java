@@ -0,0 +1,69 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The size and duration of a completed upload or download.
+ */
+public class TransferStatistics {
+
+    private final long bytes;
+    private final long elapsedNanos;
+
+    /**
+     * Creates statistics for a transfer.
+     *
+     * @param bytes the number of bytes transferred.
+     * @param elapsedNanos how long the transfer took, in nanoseconds.
+     */
+    public TransferStatistics(long bytes, long elapsedNanos) {
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the transfer's average throughput.
+     *
+     * @return bytes per second, or 0 if the transfer took no measurable time.
+     */
+    public double getBytesPerSecond() {
+        if (this.elapsedNanos <= 0) {
+            return 0;
+        }
+        return this.bytes * 1e9 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStatistics{" + "bytes=" + bytes
+                + ", elapsedMillis=" + getElapsed(TimeUnit.MILLISECONDS)
+                + ", bytesPerSecond=" + (long) getBytesPerSecond() + '}';
+    }
+}
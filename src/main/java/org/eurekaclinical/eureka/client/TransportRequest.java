@@ -0,0 +1,96 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.InputStream;
+import java.net.URI;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A request for an {@link EurekaTransport} to send.
+ */
+public final class TransportRequest {
+
+    private final String method;
+    private final URI uri;
+    private final MultivaluedMap<String, String> headers;
+    private final InputStream entity;
+
+    /**
+     * Creates a request.
+     *
+     * @param method the HTTP method.
+     * @param uri the absolute URI, including any query string.
+     * @param headers the request headers.
+     * @param entity the request body, or <code>null</code> if there is none.
+     */
+    public TransportRequest(String method, URI uri,
+            MultivaluedMap<String, String> headers, InputStream entity) {
+        if (method == null) {
+            throw new IllegalArgumentException("method cannot be null");
+        }
+        if (uri == null) {
+            throw new IllegalArgumentException("uri cannot be null");
+        }
+        if (headers == null) {
+            throw new IllegalArgumentException("headers cannot be null");
+        }
+        this.method = method;
+        this.uri = uri;
+        this.headers = headers;
+        this.entity = entity;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public MultivaluedMap<String, String> getHeaders() {
+        return headers;
+    }
+
+    public InputStream getEntity() {
+        return entity;
+    }
+
+    /**
+     * Gets the length of the request body from its
+     * <code>Content-Length</code> header.
+     *
+     * @return the length, or -1 if it is not known in advance and the body
+     * must be sent in chunks.
+     */
+    public long getContentLength() {
+        String contentLength = this.headers.getFirst(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
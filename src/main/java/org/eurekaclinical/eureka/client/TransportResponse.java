@@ -0,0 +1,85 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A response received by an {@link EurekaTransport}. Closing the response
+ * closes its entity stream, which releases the connection.
+ */
+public final class TransportResponse implements Closeable {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int status;
+    private final MultivaluedMap<String, String> headers;
+    private final InputStream entity;
+
+    /**
+     * Creates a response.
+     *
+     * @param status the HTTP status code.
+     * @param headers the response headers. Lookups by name must ignore case.
+     * @param entity the response body, or <code>null</code> if there is none.
+     * Closing it must release the connection.
+     */
+    public TransportResponse(int status, MultivaluedMap<String, String> headers, InputStream entity) {
+        if (headers == null) {
+            throw new IllegalArgumentException("headers cannot be null");
+        }
+        this.status = status;
+        this.headers = headers;
+        this.entity = entity != null ? entity : new ByteArrayInputStream(EMPTY);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public MultivaluedMap<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the response body.
+     *
+     * @return the body. Never <code>null</code>.
+     */
+    public InputStream getEntityInputStream() {
+        return entity;
+    }
+
+    /**
+     * Releases the connection. Any part of the body that has not been read
+     * is discarded.
+     */
+    @Override
+    public void close() {
+        try {
+            this.entity.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import org.eurekaclinical.common.comm.clients.ClientException;
+
+/**
+ * Wraps a {@link ClientException} with an unchecked exception, for requests
+ * made where checked exceptions cannot be thrown, such as from an
+ * {@link java.util.Iterator}.
+ */
+public class UncheckedClientException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an instance.
+     *
+     * @param cause the exception. Cannot be <code>null</code>.
+     */
+    public UncheckedClientException(ClientException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Gets the wrapped exception.
+     *
+     * @return the wrapped exception.
+     */
+    @Override
+    public synchronized ClientException getCause() {
+        return (ClientException) super.getCause();
+    }
+}
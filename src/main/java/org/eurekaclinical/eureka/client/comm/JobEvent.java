@@ -21,6 +21,9 @@ package org.eurekaclinical.eureka.client.comm;
  */
 
 import java.util.Date;
+import java.util.function.Supplier;
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.annotate.JsonProperty;
 
 /**
  *
@@ -45,7 +48,14 @@ public class JobEvent {
      * error message from Oracle. Hibernate apparently orders fields
      * alphabetically.
      */
+    @JsonProperty
     private String exceptionStackTrace;
+    /**
+     * Retrieves the exception stack trace of an event that was retrieved
+     * without it. Cleared once the trace has been retrieved.
+     */
+    @JsonIgnore
+    private volatile Supplier<String> exceptionStackTraceLoader;
     /**
      * The time stamp for the event.
      */
@@ -71,12 +81,52 @@ public class JobEvent {
         this.status = status;
     }
 
+    /**
+     * Gets the exception stack trace. If the event was retrieved without its
+     * stack trace and a loader was set, the loader is called on first access
+     * and its result is kept.
+     *
+     * @return the stack trace, or <code>null</code> if there is none.
+     */
+    @JsonIgnore
     public String getExceptionStackTrace() {
+        Supplier<String> loader = this.exceptionStackTraceLoader;
+        if (loader != null) {
+            this.exceptionStackTrace = loader.get();
+            this.exceptionStackTraceLoader = null;
+        }
         return exceptionStackTrace;
     }
 
     public void setExceptionStackTrace(String exceptionStackTrace) {
         this.exceptionStackTrace = exceptionStackTrace;
+        this.exceptionStackTraceLoader = null;
+    }
+
+    /**
+     * Returns whether the exception stack trace is held by this event, rather
+     * than waiting to be retrieved on first access.
+     *
+     * @return <code>true</code> if no loader is pending.
+     */
+    @JsonIgnore
+    public boolean isExceptionStackTraceLoaded() {
+        return this.exceptionStackTraceLoader == null;
+    }
+
+    /**
+     * Sets how to retrieve the exception stack trace of an event that was
+     * retrieved without it. The stack trace held by this event is discarded,
+     * and the loader is called on the first call to
+     * {@link #getExceptionStackTrace()}. Serializing the event does not call
+     * the loader.
+     *
+     * @param exceptionStackTraceLoader the loader, or <code>null</code>.
+     */
+    @JsonIgnore
+    public void setExceptionStackTraceLoader(Supplier<String> exceptionStackTraceLoader) {
+        this.exceptionStackTrace = null;
+        this.exceptionStackTraceLoader = exceptionStackTraceLoader;
     }
 
     public Date getTimeStamp() {
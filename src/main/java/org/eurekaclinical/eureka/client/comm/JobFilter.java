@@ -92,7 +92,7 @@ public class JobFilter {
 	 */
 	public JobFilter(String queryString) {
 		Map<String, String> params = new HashMap<>();
-		String[] parts = queryString.split("|");
+		String[] parts = queryString.split("\\|");
 		for (String part : parts) {
 			String[] data = part.split("=");
 			if (data.length > 1 && data[0] != null && data[1] != null) {
@@ -178,7 +178,7 @@ public class JobFilter {
 		if (this.to != null) {
 			builder.append("|to=").append(to.getTime());
 		}
-		if (this.to != null) {
+		if (this.latest != null) {
 			builder.append("|latest=").append(latest);
 		}
 
@@ -0,0 +1,47 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import jdk.jfr.EventType;
+
+/**
+ * Creates {@link RequestEvent}s. Loaded by name by
+ * {@link RequestEvents#load()}.
+ */
+final class FlightRecorderRequestEvents implements RequestEvents {
+
+    private final EventType eventType;
+
+    FlightRecorderRequestEvents() {
+        this.eventType = EventType.getEventType(RequestEvent.class);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.eventType.isEnabled();
+    }
+
+    @Override
+    public RequestEvents.Event begin() {
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,105 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one request that {@link EurekaClient} makes,
+ * from when it is sent until its response is closed. The event is disabled
+ * unless a recording enables it, for example with a settings file that sets
+ * <code>org.eurekaclinical.eureka.client.Request#enabled</code> to
+ * <code>true</code>. While it is disabled, the client creates no events and
+ * does no extra work to measure requests.
+ */
+@Name(RequestEvent.NAME)
+@Label("Eureka Client Request")
+@Category({"Eureka Clinical", "Client"})
+@Description("A request made by the Eureka! client")
+@Enabled(false)
+final class RequestEvent extends Event implements RequestEvents.Event {
+
+    static final String NAME = "org.eurekaclinical.eureka.client.Request";
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    @Description("The route template of the request's path")
+    String route;
+
+    @Label("Status")
+    @Description("The response's HTTP status code, or 0 if no response was received")
+    int status;
+
+    @Label("Request Bytes")
+    @Description("The request body bytes sent, after any compression")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @Description("The response body bytes read, before any decompression")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Response Time")
+    @Description("The time until the response's headers arrived")
+    @Timespan
+    long responseTime;
+
+    @Label("Network Read Time")
+    @Description("The time spent waiting for the response body to arrive, or N/A if no response "
+            + "was received")
+    @Timespan
+    long networkReadTime;
+
+    @Label("Deserialization Time")
+    @Description("The time spent decompressing and deserializing the response body, not counting "
+            + "the time spent waiting for it to arrive, or N/A if the client did not deserialize it "
+            + "before returning, as for downloads and job iteration")
+    @Timespan
+    long deserializationTime;
+
+    @Label("Key Count")
+    @Description("The number of phenotype keys requested, for batched lookups")
+    int keyCount;
+
+    @Override
+    public void commit(String method, String route, int status, long requestBytes, long responseBytes,
+            long responseTime, long networkReadTime, long deserializationTime, int keyCount) {
+        this.method = method;
+        this.route = route;
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.responseTime = responseTime;
+        this.networkReadTime = networkReadTime;
+        this.deserializationTime = deserializationTime;
+        this.keyCount = keyCount;
+        commit();
+    }
+}
@@ -0,0 +1,147 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests how the limit adapts to response times and dropped requests, and
+ * how requests over the limit are queued and rejected.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(40);
+
+    @Test
+    public void testLimitGrowsWhileSaturatedAndResponseTimeIsSteady() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 50, 0);
+        for (int round = 0; round < 20; round++) {
+            runRound(limiter, limiter.getLimit(), FAST);
+        }
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > 10);
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() <= 50);
+    }
+
+    @Test
+    public void testLimitShrinksWhenResponsesSlowDown() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(40, 2, 50, 0);
+        runRound(limiter, 1, FAST);
+        int before = limiter.getLimit();
+        for (int round = 0; round < 10; round++) {
+            runRound(limiter, 1, SLOW);
+        }
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < before);
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() >= 2);
+    }
+
+    @Test
+    public void testDroppedRequestCutsLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 2, 50, 0);
+        limiter.acquire();
+        limiter.release(FAST, true);
+        assertEquals(18, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(FAST, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 2, 0);
+        limiter.acquire();
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail("Expected the request over the limit to be rejected");
+        } catch (ConcurrencyLimitException expected) {
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRejectsAfterMaxQueueTime() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 2, 1, 20, TimeUnit.MILLISECONDS);
+        limiter.acquire();
+        limiter.acquire();
+        long start = System.nanoTime();
+        try {
+            limiter.acquire();
+            fail("Expected the queued request to time out");
+        } catch (ConcurrencyLimitException expected) {
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testQueuedRequestIsAdmittedOnRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 2, 1, 5, TimeUnit.SECONDS);
+        limiter.acquire();
+        limiter.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> queued = executor.submit(() -> {
+                limiter.acquire();
+                return null;
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (limiter.getQueueDepth() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, limiter.getQueueDepth());
+            limiter.release(FAST, false);
+            queued.get(5, TimeUnit.SECONDS);
+            assertEquals(2, limiter.getInFlight());
+            assertEquals(0, limiter.getQueueDepth());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initial, int min, int max, int maxQueueSize) {
+        return new AdaptiveConcurrencyLimiter(initial, min, max, maxQueueSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a number of requests at once and completes them all with the
+     * same response time.
+     */
+    private static void runRound(AdaptiveConcurrencyLimiter limiter, int requests, long responseNanos)
+            throws Exception {
+        for (int i = 0; i < requests; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < requests; i++) {
+            limiter.release(responseNanos, false);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the breaker's state changes, including outcomes of requests that
+ * finish after the state they were allowed in has ended.
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 20;
+
+    private List<CircuitBreaker.State> changes;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        this.changes = new ArrayList<>();
+        ClientMetricsListener listener = new ClientMetricsListener() {
+            @Override
+            public void requestCompleted(String method, String route, int status, long responseNanos,
+                    long durationNanos, long requestBytes, long responseBytes) {
+            }
+
+            @Override
+            public void circuitBreakerStateChanged(String method, String route, CircuitBreaker.State state) {
+                changes.add(state);
+            }
+        };
+        this.breaker = new CircuitBreaker("GET", "/api/protected/jobs/{id}",
+                new CircuitBreakerPolicy(3, OPEN_MILLIS, TimeUnit.MILLISECONDS), () -> listener);
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertNull(this.breaker.tryAcquire());
+        assertEquals(1, this.breaker.getRejectedCount());
+        assertEquals(1, this.breaker.getOpenCount());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        fail(2);
+        this.breaker.record(this.breaker.tryAcquire(), true);
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertEquals(2, this.breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testTrialSuccessCloses() throws InterruptedException {
+        open();
+        CircuitBreaker.Permit trial = this.breaker.tryAcquire();
+        assertNotNull(trial);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertNull(this.breaker.tryAcquire());
+        this.breaker.record(trial, true);
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertEquals(listOf(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.CLOSED), this.changes);
+    }
+
+    @Test
+    public void testTrialFailureReopens() throws InterruptedException {
+        open();
+        this.breaker.record(this.breaker.tryAcquire(), false);
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertEquals(2, this.breaker.getOpenCount());
+    }
+
+    @Test
+    public void testCancelledTrialAllowsAnother() throws InterruptedException {
+        open();
+        this.breaker.cancel(this.breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertNotNull(this.breaker.tryAcquire());
+    }
+
+    @Test
+    public void testLateSuccessFromClosedStateDoesNotCloseHalfOpenBreaker() throws InterruptedException {
+        CircuitBreaker.Permit slow = this.breaker.tryAcquire();
+        open();
+        CircuitBreaker.Permit trial = this.breaker.tryAcquire();
+        assertNotNull(trial);
+        this.breaker.record(slow, true);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertNull(this.breaker.tryAcquire());
+        this.breaker.record(trial, false);
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    }
+
+    @Test
+    public void testLateFailureFromClosedStateIsNotCounted() throws InterruptedException {
+        CircuitBreaker.Permit slow = this.breaker.tryAcquire();
+        open();
+        this.breaker.record(this.breaker.tryAcquire(), true);
+        this.breaker.record(slow, false);
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertEquals(0, this.breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testStaleCancelDoesNotReleaseTrial() throws InterruptedException {
+        CircuitBreaker.Permit slow = this.breaker.tryAcquire();
+        open();
+        assertNotNull(this.breaker.tryAcquire());
+        this.breaker.cancel(slow);
+        assertNull(this.breaker.tryAcquire());
+    }
+
+    /**
+     * Opens the breaker and waits until a trial request is allowed.
+     */
+    private void open() throws InterruptedException {
+        fail(3);
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        Thread.sleep(OPEN_MILLIS * 2);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            this.breaker.record(this.breaker.tryAcquire(), false);
+        }
+    }
+
+    private static List<CircuitBreaker.State> listOf(CircuitBreaker.State... states) {
+        List<CircuitBreaker.State> result = new ArrayList<>();
+        for (CircuitBreaker.State state : states) {
+            result.add(state);
+        }
+        return result;
+    }
+}
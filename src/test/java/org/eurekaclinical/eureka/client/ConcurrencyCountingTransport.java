@@ -0,0 +1,77 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a transport to count the requests that are in flight at once, from
+ * when each is sent until its response is closed.
+ */
+final class ConcurrencyCountingTransport implements EurekaTransport {
+
+    private final EurekaTransport transport;
+    private final AtomicInteger active;
+    private final AtomicInteger maxActive;
+
+    ConcurrencyCountingTransport(EurekaTransport transport) {
+        this.transport = transport;
+        this.active = new AtomicInteger();
+        this.maxActive = new AtomicInteger();
+    }
+
+    int getMaxActive() {
+        return this.maxActive.get();
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        this.maxActive.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+        TransportResponse response;
+        try {
+            response = this.transport.execute(request);
+        } catch (IOException | RuntimeException ex) {
+            this.active.decrementAndGet();
+            throw ex;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return new TransportResponse(response.getStatus(), response.getHeaders(),
+                new FilterInputStream(response.getEntityInputStream()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        active.decrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.transport.close();
+    }
+}
@@ -0,0 +1,128 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eurekaclinical.eureka.client.comm.JobMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests conditional GETs against a local server that answers a repeated
+ * request whose <code>If-None-Match</code> header matches with
+ * <code>304 Not Modified</code>.
+ */
+public class ConditionalGetTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final byte[] JOB_MODES = "[{\"id\":1,\"name\":\"Replace\",\"rank\":1,\"default\":true}]"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private List<String> ifNoneMatch;
+    private AtomicInteger notModifiedCount;
+    private PooledHttpTransport transport;
+    private EurekaClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.ifNoneMatch = Collections.synchronizedList(new ArrayList<>());
+        this.notModifiedCount = new AtomicInteger();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/api/protected/jobmodes", exchange -> {
+            String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            this.ifNoneMatch.add(condition);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(condition)) {
+                this.notModifiedCount.incrementAndGet();
+                // The server closes the connection after a 304, so say so.
+                exchange.getResponseHeaders().add("Connection", "close");
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, JOB_MODES.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(JOB_MODES);
+                }
+            }
+            exchange.close();
+        });
+        this.server.start();
+        this.client = new EurekaClient("http://127.0.0.1:" + this.server.getAddress().getPort() + "/");
+        this.transport = new PooledHttpTransport();
+        this.client.setTransport(this.transport);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.transport.close();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testRepeatedRequestIsNotModified() throws Exception {
+        this.client.setConditionalGetEnabled(true);
+        List<JobMode> first = this.client.getJobModes();
+        List<JobMode> second = this.client.getJobModes();
+        assertEquals(1, this.notModifiedCount.get());
+        assertEquals(2, this.ifNoneMatch.size());
+        assertNull(this.ifNoneMatch.get(0));
+        assertEquals(ETAG, this.ifNoneMatch.get(1));
+        assertEquals(1, second.size());
+        assertEquals(first.get(0).getName(), second.get(0).getName());
+        assertEquals(Long.valueOf(1), second.get(0).getId());
+    }
+
+    @Test
+    public void testNotModifiedResponseIsACopy() throws Exception {
+        this.client.setConditionalGetEnabled(true);
+        List<JobMode> first = this.client.getJobModes();
+        first.get(0).setName("Changed");
+        List<JobMode> second = this.client.getJobModes();
+        List<JobMode> third = this.client.getJobModes();
+        assertEquals(2, this.notModifiedCount.get());
+        assertEquals("Replace", second.get(0).getName());
+        assertNotSame(second.get(0), third.get(0));
+    }
+
+    @Test
+    public void testDisablingForgetsValidators() throws Exception {
+        this.client.setConditionalGetEnabled(true);
+        this.client.getJobModes();
+        this.client.setConditionalGetEnabled(false);
+        this.client.setConditionalGetEnabled(true);
+        this.client.getJobModes();
+        assertEquals(0, this.notModifiedCount.get());
+        assertNull(this.ifNoneMatch.get(1));
+    }
+}
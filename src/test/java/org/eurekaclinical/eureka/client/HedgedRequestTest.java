@@ -0,0 +1,195 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests which attempt's result a hedged request returns, and that the
+ * losing attempt's result is closed.
+ */
+public class HedgedRequestTest {
+
+    private static final long DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final class Result implements Closeable {
+
+        private final int attempt;
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        Result(int attempt) {
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void close() {
+            this.closed.countDown();
+        }
+    }
+
+    private ExecutorService executor;
+    private HedgingPolicy policy;
+    private AtomicInteger attempts;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newCachedThreadPool();
+        this.policy = new HedgingPolicy(20, TimeUnit.MILLISECONDS, 1.0);
+        this.policy.requestStarted();
+        this.attempts = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testFastRequestIsNotHedged() throws Exception {
+        Result result = new HedgedRequest<>(() -> new Result(this.attempts.incrementAndGet()),
+                this.policy, this.executor).send(DELAY_NANOS);
+        assertEquals(1, result.attempt);
+        assertEquals(1, this.attempts.get());
+        assertEquals(0, this.policy.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeWinsAndSlowResultIsClosed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Result[] first = new Result[1];
+        Result result = new HedgedRequest<>(() -> {
+            int attempt = this.attempts.incrementAndGet();
+            if (attempt == 1) {
+                await(release);
+                first[0] = new Result(attempt);
+                return first[0];
+            }
+            return new Result(attempt);
+        }, this.policy, this.executor).send(DELAY_NANOS);
+        assertEquals(2, result.attempt);
+        assertEquals(1, this.policy.getHedgeCount());
+        waitFor(() -> this.policy.getHedgeWinCount() == 1);
+        release.countDown();
+        waitFor(() -> first[0] != null);
+        assertTrue(first[0].closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() throws Exception {
+        HedgingPolicy empty = new HedgingPolicy(20, TimeUnit.MILLISECONDS, 0.0);
+        Result result = new HedgedRequest<>(() -> {
+            int attempt = this.attempts.incrementAndGet();
+            await(new CountDownLatch(1), DELAY_NANOS * 3);
+            return new Result(attempt);
+        }, empty, this.executor).send(DELAY_NANOS);
+        assertEquals(1, result.attempt);
+        assertEquals(1, this.attempts.get());
+        assertEquals(0, empty.getHedgeCount());
+    }
+
+    @Test
+    public void testFailsOnlyWhenEveryAttemptFails() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ClientException failure = new ClientException(ClientResponse.Status.SERVICE_UNAVAILABLE, "failed");
+        try {
+            new HedgedRequest<Result>(() -> {
+                if (this.attempts.incrementAndGet() == 1) {
+                    await(release);
+                } else {
+                    release.countDown();
+                }
+                throw failure;
+            }, this.policy, this.executor).send(DELAY_NANOS);
+            fail("Expected both attempts to fail");
+        } catch (ClientException ex) {
+            assertSame(failure, ex);
+        }
+        assertEquals(2, this.attempts.get());
+    }
+
+    @Test
+    public void testCallerSendsWhenExecutorIsBusy() throws Exception {
+        ExecutorService busy = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            busy.execute(() -> await(release));
+            Thread caller = Thread.currentThread();
+            boolean[] onCaller = new boolean[1];
+            Result result = new HedgedRequest<>(() -> {
+                onCaller[0] = Thread.currentThread() == caller;
+                return new Result(this.attempts.incrementAndGet());
+            }, this.policy, busy).send(DELAY_NANOS);
+            assertEquals(1, result.attempt);
+            assertTrue(onCaller[0]);
+            assertEquals(0, this.policy.getHedgeCount());
+        } finally {
+            release.countDown();
+            busy.shutdown();
+        }
+        assertTrue(busy.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, this.attempts.get());
+    }
+
+    @Test
+    public void testRejectingExecutorSendsOnCaller() throws Exception {
+        Result result = new HedgedRequest<>(() -> new Result(this.attempts.incrementAndGet()),
+                this.policy, command -> {
+                    throw new RejectedExecutionException();
+                }).send(DELAY_NANOS);
+        assertEquals(1, result.attempt);
+        assertEquals(1, result.closed.getCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        await(latch, TimeUnit.SECONDS.toNanos(5));
+    }
+
+    private static void await(CountDownLatch latch, long timeoutNanos) {
+        try {
+            latch.await(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,157 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.eurekaclinical.eureka.client.comm.JobMode;
+import org.eurekaclinical.eureka.client.comm.JobSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that requests to the JSON API are sent with the client's transport.
+ */
+public class JsonRequestTest {
+
+    private static final byte[] JOB_MODES = "[{\"id\":1,\"name\":\"Replace\",\"rank\":1,\"default\":true}]"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private List<String> requests;
+    private PooledHttpTransport transport;
+    private EurekaClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.requests = Collections.synchronizedList(new ArrayList<>());
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/api/protected/jobmodes", exchange -> {
+            this.requests.add(exchange.getRequestMethod() + " "
+                    + exchange.getRequestHeaders().getFirst("Accept"));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, JOB_MODES.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(JOB_MODES);
+            }
+            exchange.close();
+        });
+        this.server.createContext("/api/protected/jobs", exchange -> {
+            InputStream body = exchange.getRequestBody();
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if ("gzip".equals(contentEncoding)) {
+                body = new GZIPInputStream(body);
+            }
+            this.requests.add(exchange.getRequestMethod() + " "
+                    + exchange.getRequestHeaders().getFirst("Content-Type") + " "
+                    + (contentEncoding != null ? contentEncoding + " " : "")
+                    + readAll(body));
+            exchange.getResponseHeaders().add("Location", "/api/protected/jobs/7");
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        this.server.createContext("/api/protected/destinations", exchange -> {
+            this.requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        this.server.start();
+        this.client = new EurekaClient("http://127.0.0.1:" + this.server.getAddress().getPort() + "/");
+        this.transport = new PooledHttpTransport();
+        this.client.setTransport(this.transport);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.transport.close();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testGetIsDeserialized() throws Exception {
+        List<JobMode> jobModes = this.client.getJobModes();
+        assertEquals(1, jobModes.size());
+        assertEquals("Replace", jobModes.get(0).getName());
+        assertEquals(Collections.singletonList("GET application/json"), this.requests);
+    }
+
+    @Test
+    public void testBytesAreCounted() throws Exception {
+        JobSpec jobSpec = new JobSpec();
+        jobSpec.setSourceConfigId("source");
+        this.client.submitJob(jobSpec);
+        this.client.getJobModes();
+        RouteMetrics jobs = this.client.getMetrics().getRoute("POST", "/api/protected/jobs");
+        assertTrue(jobs.getRequestBytes() > 0);
+        RouteMetrics jobModes = this.client.getMetrics().getRoute("GET", "/api/protected/jobmodes");
+        assertEquals(JOB_MODES.length, jobModes.getResponseBytes());
+    }
+
+    @Test
+    public void testPostCreateSendsJson() throws Exception {
+        JobSpec jobSpec = new JobSpec();
+        jobSpec.setSourceConfigId("source");
+        this.client.submitJob(jobSpec);
+        assertEquals(1, this.requests.size());
+        assertTrue(this.requests.get(0),
+                this.requests.get(0).startsWith("POST application/json {")
+                && this.requests.get(0).contains("\"sourceConfigId\":\"source\""));
+    }
+
+    @Test
+    public void testPostCreateIsCompressed() throws Exception {
+        this.client.setRequestCompressionEnabled(true);
+        JobSpec jobSpec = new JobSpec();
+        jobSpec.setSourceConfigId("source");
+        this.client.submitJob(jobSpec);
+        assertEquals(1, this.requests.size());
+        assertTrue(this.requests.get(0),
+                this.requests.get(0).startsWith("POST application/json gzip {")
+                && this.requests.get(0).contains("\"sourceConfigId\":\"source\""));
+    }
+
+    @Test
+    public void testDeleteIsSent() throws Exception {
+        this.client.deleteDestination(1L, "dest");
+        assertEquals(Collections.singletonList("DELETE /api/protected/destinations/dest"), this.requests);
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) != -1;) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,207 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests resumable output downloads against a local server that supports
+ * range requests and can be told to fail a range once, to drop its
+ * connection once, or to send the wrong part of the output.
+ */
+public class OutputDownloadTest {
+
+    private static final String ETAG = "\"output-1\"";
+    private static final String DESTINATION_ID = "dest";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private volatile boolean rangesSupported;
+    private Set<Long> failOnce;
+    private Set<Long> dropOnce;
+    private volatile long misplacedRangeStart;
+    private AtomicInteger rangeRequests;
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private ConcurrencyCountingTransport transport;
+    private EurekaClient client;
+    private Path target;
+
+    @Before
+    public void setUp() throws IOException {
+        this.content = new byte[3 * 1024 * 1024 + 12345];
+        new Random(42).nextBytes(this.content);
+        this.rangesSupported = true;
+        this.failOnce = ConcurrentHashMap.newKeySet();
+        this.dropOnce = ConcurrentHashMap.newKeySet();
+        this.misplacedRangeStart = -1;
+        this.rangeRequests = new AtomicInteger();
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/api/protected/output/" + DESTINATION_ID, this::serve);
+        this.server.start();
+        this.client = new EurekaClient("http://127.0.0.1:" + this.server.getAddress().getPort() + "/");
+        this.transport = new ConcurrencyCountingTransport(new PooledHttpTransport());
+        this.client.setTransport(this.transport);
+        this.target = this.folder.getRoot().toPath().resolve("output.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.transport.close();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testDownloadsInRanges() throws Exception {
+        TransferStatistics statistics = this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+        assertEquals(this.content.length, statistics.getBytes());
+        assertArrayEquals(this.content, Files.readAllBytes(this.target));
+        assertFalse(Files.exists(checkpointFile()));
+        assertEquals(4, this.rangeRequests.get());
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        long secondRangeStart = this.content.length / 3;
+        this.failOnce.add(secondRangeStart);
+        try {
+            this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+            fail("Expected the failed range to fail the download");
+        } catch (ClientException expected) {
+        }
+        assertTrue(Files.exists(checkpointFile()));
+
+        TransferStatistics statistics = this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+        assertEquals(this.content.length / 3, statistics.getBytes());
+        assertArrayEquals(this.content, Files.readAllBytes(this.target));
+        assertFalse(Files.exists(checkpointFile()));
+    }
+
+    @Test
+    public void testRetriesDroppedConnection() throws Exception {
+        long secondRangeStart = this.content.length / 3;
+        this.dropOnce.add(secondRangeStart);
+        TransferStatistics statistics = this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+        assertEquals(this.content.length, statistics.getBytes());
+        assertArrayEquals(this.content, Files.readAllBytes(this.target));
+        assertEquals(5, this.rangeRequests.get());
+    }
+
+    @Test
+    public void testRejectsMisplacedRange() throws Exception {
+        this.misplacedRangeStart = this.content.length / 3;
+        try {
+            this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+            fail("Expected the misplaced range to fail the download");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("from byte 0"));
+        }
+    }
+
+    @Test
+    public void testDownloadsInOnePieceWithoutRangeSupport() throws Exception {
+        this.rangesSupported = false;
+        TransferStatistics statistics = this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+        assertEquals(this.content.length, statistics.getBytes());
+        assertArrayEquals(this.content, Files.readAllBytes(this.target));
+        assertEquals(1, this.rangeRequests.get());
+    }
+
+    @Test
+    public void testFetchesNoMoreRangesAtOnceThanTheTransferBulkhead() throws Exception {
+        this.client.setBulkhead(RouteClass.TRANSFER, new Bulkhead(1, 0, TimeUnit.MILLISECONDS));
+        this.client.downloadOutputResumable(DESTINATION_ID, this.target, 3);
+        assertArrayEquals(this.content, Files.readAllBytes(this.target));
+        assertEquals(1, this.transport.getMaxActive());
+    }
+
+    private Path checkpointFile() {
+        return this.target.resolveSibling(this.target.getFileName() + ".checkpoint");
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        this.rangeRequests.incrementAndGet();
+        try {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            if (!this.rangesSupported || range == null || (ifRange != null && !ifRange.equals(ETAG))) {
+                send(exchange, 200, 0, this.content.length - 1);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            long start = Long.parseLong(bounds[0]);
+            long end = Math.min(Long.parseLong(bounds[1]), this.content.length - 1);
+            if (this.failOnce.remove(start)) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            if (this.dropOnce.remove(start)) {
+                return;
+            }
+            if (start == this.misplacedRangeStart) {
+                start = 0;
+            }
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + end + "/" + this.content.length);
+            send(exchange, 206, start, end);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, long start, long end) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(status, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(this.content, (int) start, (int) (end - start + 1));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the concurrently compressed blocks are stitched into a single
+ * gzip member that decompresses to the source.
+ */
+public class ParallelGzipInputStreamTest {
+
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setUpClass() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEmptySource() throws Exception {
+        assertRoundTrip(new byte[0], executor, 4);
+    }
+
+    @Test
+    public void testSourceSmallerThanABlock() throws Exception {
+        assertRoundTrip(text(1000), executor, 4);
+    }
+
+    @Test
+    public void testSourceOfExactlyOneBlock() throws Exception {
+        assertRoundTrip(text(ParallelGzipInputStream.BLOCK_SIZE), executor, 4);
+    }
+
+    @Test
+    public void testCompressibleSourceOfManyBlocks() throws Exception {
+        assertRoundTrip(text(10 * ParallelGzipInputStream.BLOCK_SIZE + 777), executor, 4);
+    }
+
+    @Test
+    public void testIncompressibleSourceOfManyBlocks() throws Exception {
+        byte[] source = new byte[5 * ParallelGzipInputStream.BLOCK_SIZE + 1];
+        new Random(7).nextBytes(source);
+        assertRoundTrip(source, executor, 3);
+    }
+
+    @Test
+    public void testCompressesOnTheReadingThreadWhenTheExecutorRejects() throws Exception {
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException();
+        };
+        assertRoundTrip(text(3 * ParallelGzipInputStream.BLOCK_SIZE + 5), rejecting, 2);
+    }
+
+    private static void assertRoundTrip(byte[] source, Executor executor, int parallelism) throws IOException {
+        byte[] gzip = compress(source, executor, parallelism);
+        assertArrayEquals(source, gunzip(gzip));
+        assertSingleMember(gzip, source);
+    }
+
+    private static byte[] compress(byte[] source, Executor executor, int parallelism) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ParallelGzipInputStream(new ByteArrayInputStream(source), executor, parallelism)) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that the deflate data after the header ends exactly where the
+     * trailer starts, and that the trailer holds the source's checksum and
+     * length.
+     */
+    private static void assertSingleMember(byte[] gzip, byte[] source) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(gzip, HEADER_SIZE, gzip.length - HEADER_SIZE);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                if (inflater.inflate(buffer) == 0 && inflater.needsInput()) {
+                    break;
+                }
+            }
+            assertTrue(inflater.finished());
+            assertEquals(TRAILER_SIZE, inflater.getRemaining());
+        } catch (DataFormatException ex) {
+            throw new AssertionError(ex);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(gzip, gzip.length - TRAILER_SIZE, TRAILER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        assertEquals(crc.getValue(), trailer.getInt() & 0xffffffffL);
+        assertEquals(source.length, trailer.getInt());
+    }
+
+    private static byte[] text(int length) {
+        byte[] result = new byte[length];
+        Random random = new Random(length);
+        String[] words = {"patient ", "encounter ", "diagnosis ", "lab ", "medication ", "\n"};
+        int i = 0;
+        while (i < length) {
+            byte[] word = words[random.nextInt(words.length)].getBytes(StandardCharsets.US_ASCII);
+            int n = Math.min(word.length, length - i);
+            System.arraycopy(word, 0, result, i, n);
+            i += n;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.jersey.api.client.ClientResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eurekaclinical.common.comm.clients.ClientException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that concurrent callers with the same key share one fetch and each
+ * receive their own copy of its result.
+ */
+public class RequestCoalescerTest {
+
+    private static final int CALLERS = 5;
+
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+    private AtomicInteger fetches;
+
+    @Before
+    public void setUp() {
+        this.coalescer = new RequestCoalescer();
+        this.executor = Executors.newFixedThreadPool(CALLERS);
+        this.fetches = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(this.executor.submit(() -> this.coalescer.fetch("GET /jobs",
+                    () -> {
+                        this.fetches.incrementAndGet();
+                        awaitQuietly(release);
+                        return new ArrayList<>(Collections.singletonList("job"));
+                    }, ArrayList::new)));
+        }
+        waitForCoalesced(CALLERS - 1);
+        release.countDown();
+        Set<List<String>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<List<String>> result : results) {
+            List<String> value = result.get(5, TimeUnit.SECONDS);
+            assertEquals(Collections.singletonList("job"), value);
+            distinct.add(value);
+        }
+        assertEquals(1, this.fetches.get());
+        assertEquals(CALLERS, distinct.size());
+    }
+
+    @Test
+    public void testWaitersReceiveTheFetchFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ClientException failure = new ClientException(ClientResponse.Status.BAD_GATEWAY, "failed");
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(this.executor.submit(() -> this.coalescer.fetch("GET /jobs",
+                    () -> {
+                        this.fetches.incrementAndGet();
+                        awaitQuietly(release);
+                        throw failure;
+                    }, value -> value)));
+        }
+        waitForCoalesced(CALLERS - 1);
+        release.countDown();
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the fetch's failure");
+            } catch (ExecutionException ex) {
+                assertSame(failure, ex.getCause());
+            }
+        }
+        assertEquals(1, this.fetches.get());
+    }
+
+    @Test
+    public void testDifferentKeysAreNotCoalesced() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Future<String> first = this.executor.submit(() -> this.coalescer.fetch("GET /jobs/1",
+                () -> fetchWhenBothStarted(bothStarted, "1"), value -> value));
+        Future<String> second = this.executor.submit(() -> this.coalescer.fetch("GET /jobs/2",
+                () -> fetchWhenBothStarted(bothStarted, "2"), value -> value));
+        assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("2", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, this.fetches.get());
+        assertEquals(0, this.coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testCompletedFetchIsNotCached() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            this.coalescer.fetch("GET /jobs", () -> this.fetches.incrementAndGet(), value -> value);
+        }
+        assertEquals(3, this.fetches.get());
+        assertEquals(0, this.coalescer.getCoalescedCount());
+    }
+
+    private String fetchWhenBothStarted(CountDownLatch bothStarted, String value) {
+        this.fetches.incrementAndGet();
+        bothStarted.countDown();
+        awaitQuietly(bothStarted);
+        return value;
+    }
+
+    private void waitForCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.coalescer.getCoalescedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(this.coalescer.getCoalescedCount() >= count);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eurekaclinical.eureka.client.comm.SystemPhenotype;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Tests batched system phenotype lookups against a local server that
+ * returns a phenotype for each key that it is asked for.
+ */
+public class SystemPhenotypeLoaderTest {
+
+    private HttpServer server;
+    private AtomicInteger batches;
+    private PooledHttpTransport transport;
+    private EurekaClient client;
+    private SystemPhenotypeLoader loader;
+
+    @Before
+    public void setUp() throws IOException {
+        this.batches = new AtomicInteger();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/api/protected/concepts", exchange -> {
+            this.batches.incrementAndGet();
+            StringBuilder json = new StringBuilder("[");
+            for (String param : readAll(exchange.getRequestBody()).split("&")) {
+                String[] nameValue = param.split("=", 2);
+                if ("key".equals(nameValue[0])) {
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    json.append("{\"type\":\"SYSTEM\",\"key\":\"")
+                            .append(URLDecoder.decode(nameValue[1], "UTF-8")).append("\"}");
+                }
+            }
+            byte[] body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        this.server.start();
+        this.client = new EurekaClient("http://127.0.0.1:" + this.server.getAddress().getPort() + "/");
+        this.transport = new PooledHttpTransport();
+        this.client.setTransport(this.transport);
+        this.loader = new SystemPhenotypeLoader(this.client, 50, TimeUnit.MILLISECONDS, 100);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.loader.close();
+        this.client.close();
+        this.transport.close();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testBatchesLookups() throws Exception {
+        CompletableFuture<SystemPhenotype> a = this.loader.load("A", false);
+        CompletableFuture<SystemPhenotype> b = this.loader.load("B", false);
+        assertEquals("A", a.get(5, TimeUnit.SECONDS).getKey());
+        assertEquals("B", b.get(5, TimeUnit.SECONDS).getKey());
+        assertEquals(1, this.batches.get());
+    }
+
+    @Test
+    public void testLookupsOfTheSameKeyGetTheirOwnCopies() throws Exception {
+        CompletableFuture<SystemPhenotype> first = this.loader.load("A", false);
+        CompletableFuture<SystemPhenotype> second = this.loader.load("A", false);
+        SystemPhenotype firstPhenotype = first.get(5, TimeUnit.SECONDS);
+        SystemPhenotype secondPhenotype = second.get(5, TimeUnit.SECONDS);
+        assertNotSame(firstPhenotype, secondPhenotype);
+        firstPhenotype.setKey("changed");
+        assertEquals("A", secondPhenotype.getKey());
+        assertEquals(1, this.batches.get());
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) != -1;) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package org.eurekaclinical.eureka.client;
+
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests bulk file uploads against a local server that accepts any upload.
+ */
+public class UploadFilesTest {
+
+    private static final String SOURCE_ID = "source";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AtomicInteger uploads;
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private ConcurrencyCountingTransport transport;
+    private EurekaClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.uploads = new AtomicInteger();
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/api/protected/file/upload/" + SOURCE_ID, exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buf = new byte[8192];
+                while (in.read(buf) != -1) {
+                }
+            }
+            this.uploads.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        this.server.start();
+        this.client = new EurekaClient("http://127.0.0.1:" + this.server.getAddress().getPort() + "/");
+        this.transport = new ConcurrencyCountingTransport(new PooledHttpTransport());
+        this.client.setTransport(this.transport);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.transport.close();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testUploadsAllFiles() throws Exception {
+        BulkUploadResult result = this.client.uploadFiles(SOURCE_ID, files(3), 2, 0);
+        assertTrue(result.getFailed().toString(), result.isSuccessful());
+        assertEquals(3, result.getUploaded().size());
+        assertEquals(3, this.uploads.get());
+    }
+
+    @Test
+    public void testUploadsNoMoreFilesAtOnceThanTheTransferBulkhead() throws Exception {
+        this.client.setBulkhead(RouteClass.TRANSFER, new Bulkhead(1, 0, TimeUnit.MILLISECONDS));
+        BulkUploadResult result = this.client.uploadFiles(SOURCE_ID, files(4), 4, 0);
+        assertTrue(result.getFailed().toString(), result.isSuccessful());
+        assertEquals(4, result.getUploaded().size());
+        assertEquals(1, this.transport.getMaxActive());
+    }
+
+    private Map<String, Path> files(int count) throws IOException {
+        Random random = new Random(42);
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] content = new byte[256 * 1024];
+            random.nextBytes(content);
+            Path file = this.folder.newFile("file" + i + ".csv").toPath();
+            Files.write(file, content);
+            files.put("fileType" + i, file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * Eureka! Client
+ * %%
+ * Copyright (C) 2016 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.eurekaclinical.eureka.client.comm;
+
+import java.util.Date;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that a filter survives conversion to a query parameter and back.
+ */
+public class JobFilterTest {
+
+    @Test
+    public void testRoundTripWithAllFields() {
+        JobFilter filter = new JobFilter(12L, 34L, "COMPLETED", new Date(1000L), new Date(2000L), Boolean.TRUE);
+        JobFilter parsed = new JobFilter(filter.toQueryParam());
+        assertEquals(Long.valueOf(12), parsed.getJobId());
+        assertEquals(Long.valueOf(34), parsed.getUserId());
+        assertEquals("COMPLETED", parsed.getState());
+        assertEquals(new Date(1000L), parsed.getFrom());
+        assertEquals(new Date(2000L), parsed.getTo());
+        assertEquals(Boolean.TRUE, parsed.getLatest());
+    }
+
+    @Test
+    public void testRoundTripWithoutJobId() {
+        JobFilter filter = new JobFilter(null, 34L, null, new Date(1000L), null, null);
+        JobFilter parsed = new JobFilter(filter.toQueryParam());
+        assertNull(parsed.getJobId());
+        assertEquals(Long.valueOf(34), parsed.getUserId());
+        assertNull(parsed.getState());
+        assertEquals(new Date(1000L), parsed.getFrom());
+        assertNull(parsed.getTo());
+        assertNull(parsed.getLatest());
+    }
+
+    @Test
+    public void testLatestIsWrittenWithoutTo() {
+        JobFilter filter = new JobFilter(null, null, null, null, null, Boolean.FALSE);
+        assertEquals("|latest=false", filter.toQueryParam());
+        assertEquals(Boolean.FALSE, new JobFilter(filter.toQueryParam()).getLatest());
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        JobFilter filter = new JobFilter(null, null, null, null, null, null);
+        assertEquals("", filter.toQueryParam());
+        JobFilter parsed = new JobFilter(filter.toQueryParam());
+        assertNull(parsed.getJobId());
+        assertNull(parsed.getLatest());
+    }
+}